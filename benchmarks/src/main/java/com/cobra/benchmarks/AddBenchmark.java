@@ -0,0 +1,82 @@
+package com.cobra.benchmarks;
+
+import com.cobra.commands.AddCommand;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AddBenchmark {
+
+    @Param({"10000"})
+    public int files;
+
+    @Param({"4096"})
+    public int size;
+
+    // Worker pool size; 0 stands for availableProcessors, which is what cobra add uses
+    @Param({"1", "2", "4", "8", "0"})
+    public int threads;
+
+    private Path dir;
+    private Repository repo;
+    private List<Path> paths;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Staged {
+        // Reported per second, which makes it the staging rate
+        public long files;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("add");
+        Random random = new Random(Fixtures.SEED);
+        paths = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            Path file = dir.resolve(Fixtures.path(i));
+            Files.createDirectories(file.getParent());
+            Files.write(file, Fixtures.content(random, size));
+            paths.add(file);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void freshRepository() throws IOException {
+        // Every invocation stages into an empty object store and index, so no blob is skipped as
+        // already present; one invocation takes seconds, which dwarfs the per-invocation overhead
+        Fixtures.delete(dir.resolve(".cobra"));
+        repo = Repository.init(dir.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public int add(Staged counter) throws IOException {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int added = AddCommand.addFiles(repo, paths, workers);
+        counter.files += added;
+        return added;
+    }
+}
@@ -0,0 +1,105 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class BlobIngestBenchmark {
+    // The fork's heap is far smaller than the largest file, so the 4 GB run only completes
+    // if insertBlob streams; peakHeapMb should stay flat from the smallest size to the largest
+
+    private static final int CHUNK = 1 << 20;
+
+    @Param({"1", "100", "4096"})
+    public int sizeMb;
+
+    private Path dir;
+    private Repository repo;
+    private Path file;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        // Reported per second, which makes it the ingest rate
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long peakHeapMb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+            peakHeapMb = 0;
+        }
+
+        void sample() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapMb = Math.max(peakHeapMb, peak >> 20);
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        // Written a chunk at a time; the file itself must never be held in memory
+        dir = Fixtures.tempDir("ingest");
+        repo = Repository.init(dir.resolve("repo").toString());
+        file = dir.resolve("input.bin");
+        byte[] chunk = Fixtures.content(new Random(Fixtures.SEED), CHUNK);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < sizeMb; i++) {
+                // A distinct first line per chunk, so the content does not repeat exactly
+                chunk[0] = (byte) ('a' + i % 26);
+                chunk[1] = (byte) ('a' + i / 26 % 26);
+                out.write(chunk);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public ObjectId insertBlob(Bytes bytes, Heap heap) throws IOException {
+        // After the first call the object exists, but the file is still hashed and deflated in full
+        ObjectId id = repo.insertBlob(file);
+        bytes.bytes += (long) sizeMb * CHUNK;
+        heap.sample();
+        return id;
+    }
+}
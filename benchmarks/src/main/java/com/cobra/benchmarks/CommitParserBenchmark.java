@@ -0,0 +1,87 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.Commit;
+import com.cobra.core.GitObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitParserBenchmark {
+    
+    // The pattern LogCommand used before the dedicated parser, kept as the baseline
+    private static final Pattern COMMIT_PATTERN = Pattern.compile(
+        "tree ([a-f0-9]+)\\s*\\n" +
+        "(?:parent ([a-f0-9]+)\\s*\\n)?" +
+        "author .*\\s*\\n" +
+        "committer .*\\s*\\n\\s*\\n" +
+        "(.+)", 
+        Pattern.DOTALL
+    );
+    
+    @Param({"short", "long"})
+    public String message;
+    
+    private GitObject commit;
+    
+    @Setup
+    public void setup() {
+        StringBuilder body = new StringBuilder("Fix the thing\n");
+        if (message.equals("long")) {
+            body.append('\n');
+            for (int i = 0; i < 40; i++) {
+                body.append("Explain in some detail why line ").append(i).append(" of this change matters.\n");
+            }
+        }
+        String content = "tree " + hex('a') + "\n"
+            + "parent " + hex('b') + "\n"
+            + "author Jobra <cobra@example.com> 1700000000 +0200\n"
+            + "committer Jobra <cobra@example.com> 1700000000 +0200\n\n"
+            + body;
+        commit = GitObject.fromRawContent("commit", content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        // Decodes the whole body and backtracks through it, as the old log did per commit
+        String content = new String(commit.getBytes(), StandardCharsets.UTF_8);
+        Matcher matcher = COMMIT_PATTERN.matcher(content);
+        if (matcher.matches()) {
+            blackhole.consume(matcher.group(1));
+            blackhole.consume(matcher.group(2));
+        }
+    }
+    
+    @Benchmark
+    public void parserHeaders(Blackhole blackhole) {
+        Commit parsed = Commit.parse(commit);
+        blackhole.consume(parsed.getTreeHash());
+        blackhole.consume(parsed.getParent(0));
+    }
+    
+    @Benchmark
+    public void parserFull(Blackhole blackhole) {
+        Commit parsed = Commit.parse(commit);
+        blackhole.consume(parsed.getTreeHash());
+        blackhole.consume(parsed.getParents());
+        blackhole.consume(parsed.getAuthor());
+        blackhole.consume(parsed.getMessage());
+    }
+    
+    private static String hex(char c) {
+        StringBuilder hash = new StringBuilder(64);
+        for (int i = 0; i < 64; i++) {
+            hash.append(c);
+        }
+        return hash.toString();
+    }
+}
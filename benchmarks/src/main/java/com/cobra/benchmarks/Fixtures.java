@@ -0,0 +1,85 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.Index;
+import com.cobra.core.IndexEntry;
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import com.cobra.core.RepositoryGenerator;
+import com.cobra.utils.HashUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+class Fixtures {
+    // Shared setup for the suites; everything is seeded so runs are comparable
+    static final long SEED = 42;
+    static final int FILES_PER_DIR = 32;
+
+    static Path tempDir(String name) throws IOException {
+        return Files.createTempDirectory("cobra-bench-" + name + "-");
+    }
+
+    static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    static PrintStream nullOut() {
+        // Commands print their results, which would otherwise dominate the measurement
+        return new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    static String path(int i) {
+        // Two directory levels so that tree building and walks see a realistic shape
+        int dir = i / FILES_PER_DIR;
+        return "d" + (dir / FILES_PER_DIR) + "/s" + (dir % FILES_PER_DIR) + "/file" + i + ".txt";
+    }
+
+    static byte[] content(Random random, int size) {
+        // Printable text compresses roughly like source code
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            int c = random.nextInt(64);
+            data[i] = (byte) (c < 10 ? '\n' : c < 20 ? ' ' : 'a' + c % 26);
+        }
+        return data;
+    }
+
+    static Index index(int entries) {
+        // Entries need no backing objects for index load and write
+        Index index = new Index();
+        for (int i = 0; i < entries; i++) {
+            String path = path(i);
+            ObjectId id = ObjectId.fromRaw(HashUtils.sha256Raw(path.getBytes(StandardCharsets.UTF_8), 0, path.length()));
+            IndexEntry entry = new IndexEntry(path, id, "100644", 100 + i % 1000);
+            entry.setMtime(1_700_000_000_000_000_000L + i);
+            index.addEntry(entry);
+        }
+        return index;
+    }
+
+    static Repository generated(Path dir, int files, int commits, int churn) throws IOException {
+        // Seeded, so every run measures the same repository
+        RepositoryGenerator.generate(dir, new RepositoryGenerator.Options()
+            .seed(SEED)
+            .files(files)
+            .commits(commits)
+            .churn(churn)
+            .medianSize(512)
+            .binaryRatio(0));
+        return Repository.open(dir.toString());
+    }
+}
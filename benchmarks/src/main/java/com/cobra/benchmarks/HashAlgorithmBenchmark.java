@@ -0,0 +1,41 @@
+package com.cobra.benchmarks;
+
+import com.cobra.utils.HashAlgorithm;
+import com.cobra.utils.ObjectHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashAlgorithmBenchmark {
+
+    @Param({"sha256", "blake3"})
+    public String algorithm;
+
+    // Small objects, a typical source file, and blobs large enough for BLAKE3's parallel tree mode
+    @Param({"64", "4096", "1048576", "67108864"})
+    public int size;
+
+    private ObjectHasher hasher;
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        hasher = HashAlgorithm.fromName(algorithm).newHasher();
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+    }
+
+    // Multiply ops/s by the size parameter for bytes per second
+    @Benchmark
+    public byte[] hash() {
+        hasher.update(data, 0, data.length);
+        return hasher.digest();
+    }
+}
@@ -0,0 +1,45 @@
+package com.cobra.benchmarks;
+
+import com.cobra.utils.HashUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashUtilsBenchmark {
+
+    @Param({"64", "4096", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private byte[] raw;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random(Fixtures.SEED).nextBytes(data);
+        raw = HashUtils.sha256Raw(data, 0, data.length);
+    }
+
+    // Multiply ops/s by the size parameter for bytes per second
+    @Benchmark
+    public String sha256() {
+        return HashUtils.sha256(data);
+    }
+
+    @Benchmark
+    public byte[] sha256Raw() {
+        return HashUtils.sha256Raw(data, 0, data.length);
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return HashUtils.bytesToHex(raw);
+    }
+}
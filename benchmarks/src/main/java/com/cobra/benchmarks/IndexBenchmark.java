@@ -0,0 +1,63 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.Index;
+import com.cobra.core.IndexEntry;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IndexBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    private Path dir;
+    private Repository repo;
+    private Index index;
+    private Path scratch;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("index");
+        repo = Repository.init(dir.toString());
+        index = Fixtures.index(entries);
+        index.writeToFile(repo.getJobraDir().resolve("index"));
+        scratch = repo.getJobraDir().resolve("index.bench");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public Index load() throws IOException {
+        // Maps the file; entries are decoded on demand
+        return Index.load(repo);
+    }
+
+    @Benchmark
+    public IndexEntry loadAndLookup() throws IOException {
+        return Index.load(repo).getEntry(Fixtures.path(entries / 2));
+    }
+
+    @Benchmark
+    public List<IndexEntry> loadAll() throws IOException {
+        return Index.load(repo).getEntries();
+    }
+
+    @Benchmark
+    public void writeToFile() throws IOException {
+        index.writeToFile(scratch);
+    }
+}
@@ -0,0 +1,108 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.LineDiff;
+import com.cobra.core.ObjectId;
+import com.cobra.core.TreeDiff;
+import com.cobra.core.UnifiedDiffFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LineDiffBenchmark {
+
+    @Param({"10000", "200000"})
+    public int lines;
+
+    // Lines inserted, deleted or replaced at random places in the new version
+    @Param({"10", "1000"})
+    public int edits;
+
+    @Param({"MYERS", "HISTOGRAM"})
+    public LineDiff.Algorithm algorithm;
+
+    private LineDiff.Text oldText;
+    private LineDiff.Text newText;
+    private TreeDiff.Change change;
+
+    @Setup
+    public void setup() {
+        // Source-like lines drawn from a small vocabulary, so many lines repeat as in real code
+        Random random = new Random(Fixtures.SEED);
+        List<String> before = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            before.add(line(random));
+        }
+        List<String> after = new ArrayList<>(before);
+        for (int i = 0; i < edits; i++) {
+            int at = random.nextInt(after.size());
+            switch (random.nextInt(3)) {
+                case 0:
+                    after.add(at, line(random));
+                    break;
+                case 1:
+                    after.remove(at);
+                    break;
+                default:
+                    after.set(at, line(random));
+                    break;
+            }
+        }
+        oldText = new LineDiff.Text(join(before));
+        newText = new LineDiff.Text(join(after));
+        change = new TreeDiff.Change(TreeDiff.ChangeType.MODIFIED, "file.java",
+            0100644, ObjectId.fromRaw(new byte[ObjectId.RAW_SIZE]), 0100644, ObjectId.fromRaw(newId()));
+    }
+
+    @Benchmark
+    public List<LineDiff.Edit> diff() {
+        return new LineDiff(algorithm).diff(oldText, newText);
+    }
+
+    @Benchmark
+    public void unified() throws IOException {
+        // Diff plus streaming the hunks out, as cobra diff does
+        OutputStream out = new BufferedOutputStream(OutputStream.nullOutputStream());
+        new UnifiedDiffFormatter(null, out, algorithm).format(change, oldText, newText);
+        out.flush();
+    }
+
+    private static String line(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "    }";
+            case 1:
+                return "";
+            case 2:
+                return "        int value" + random.nextInt(100) + " = compute(" + random.nextInt(1000) + ");";
+            default:
+                return "    private void method" + random.nextInt(100000) + "() {";
+        }
+    }
+
+    private static byte[] join(List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] newId() {
+        byte[] raw = new byte[ObjectId.RAW_SIZE];
+        raw[0] = 1;
+        return raw;
+    }
+}
@@ -0,0 +1,54 @@
+package com.cobra.benchmarks;
+
+import com.cobra.commands.LogCommand;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBenchmark {
+
+    @Param({"1000"})
+    public int commits;
+
+    private Path dir;
+    private Repository repo;
+    private String path;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("log");
+        repo = Fixtures.generated(dir, 2000, commits, 1);
+        // Pathspecs are resolved against the working directory, so pass an absolute one
+        path = dir.resolve(repo.getIndex().getEntries().get(0).getPath()).toString();
+        stdout = System.out;
+        System.setOut(Fixtures.nullOut());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public void log() throws IOException {
+        LogCommand.run(repo, null);
+    }
+
+    @Benchmark
+    public void logPath() throws IOException {
+        // Changed-path Bloom filters should skip the tree lookups for most commits
+        LogCommand.run(repo, path);
+    }
+}
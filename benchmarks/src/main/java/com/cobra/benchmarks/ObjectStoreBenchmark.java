@@ -0,0 +1,85 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.GitObject;
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectStoreBenchmark {
+
+    private static final int OBJECTS = 256;
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    // Loose objects are one zlib file each; packed ones are read through the mmapped pack index
+    @Param({"loose", "packed"})
+    public String storage;
+
+    private Path dir;
+    private Repository repo;
+    private ObjectId[] ids;
+    private byte[] payload;
+    private int next;
+    private long counter;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        // A fresh repository per iteration keeps writeObject from filling the disk
+        dir = Fixtures.tempDir("objects");
+        repo = Repository.init(dir.toString());
+        Random random = new Random(Fixtures.SEED);
+        ids = new ObjectId[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            ids[i] = repo.insertObject(new GitObject("blob", Fixtures.content(random, size)));
+        }
+        if (storage.equals("packed")) {
+            repo.repack();
+            repo = Repository.open(dir.toString());
+        }
+        payload = Fixtures.content(random, size);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public String writeObject() throws IOException {
+        // Every call stores new content, otherwise the existing object short-circuits the write
+        long value = counter++;
+        for (int i = 0; i < 8; i++) {
+            payload[i] = (byte) (value >>> (i * 8));
+        }
+        return repo.writeObject(new GitObject("blob", payload));
+    }
+
+    @Benchmark
+    public String writeExisting() throws IOException {
+        // Hashing plus the existence check, as when re-adding unchanged files
+        return repo.writeObject(new GitObject("blob", payload));
+    }
+
+    @Benchmark
+    public GitObject readObjectCached() throws IOException {
+        return repo.readObject(ids[next++ & (OBJECTS - 1)]);
+    }
+
+    @Benchmark
+    public GitObject readObjectUncached() throws IOException {
+        repo.getObjectCache().clear();
+        return repo.readObject(ids[next++ & (OBJECTS - 1)]);
+    }
+}
@@ -0,0 +1,67 @@
+package com.cobra.benchmarks;
+
+import com.cobra.commands.StatusCommand;
+import com.cobra.core.FileMonitor;
+import com.cobra.core.Repository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StatusBenchmark {
+
+    @Param({"10000", "200000"})
+    public int files;
+
+    // With the monitor only paths reported as changed are examined, instead of the whole tree
+    @Param({"false", "true"})
+    public boolean monitor;
+
+    private Path dir;
+    private Repository repo;
+    private PrintStream stdout;
+    private FileMonitor fileMonitor;
+
+    @Setup
+    public void setup() throws IOException {
+        // A clean working tree: status only stats tracked files and walks for untracked ones
+        dir = Fixtures.tempDir("status");
+        repo = Fixtures.generated(dir, files, 1, 0);
+        if (monitor) {
+            fileMonitor = FileMonitor.start(dir);
+            repo.setFileMonitor(fileMonitor);
+        }
+        stdout = System.out;
+        System.setOut(Fixtures.nullOut());
+        // The first run is always a full scan, it hands out the token later runs start from
+        StatusCommand.run(repo);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        if (fileMonitor != null) {
+            fileMonitor.close();
+        }
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public void status() throws IOException {
+        StatusCommand.run(repo);
+    }
+
+    @Benchmark
+    public void porcelain() throws IOException {
+        // Scales with -Djava.util.concurrent.ForkJoinPool.common.parallelism
+        StatusCommand.runPorcelain(repo);
+    }
+}
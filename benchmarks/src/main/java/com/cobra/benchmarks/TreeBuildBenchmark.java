@@ -0,0 +1,62 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.Index;
+import com.cobra.core.IndexEntry;
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import com.cobra.core.TreeBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeBuildBenchmark {
+
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private Path dir;
+    private Repository repo;
+    private Index index;
+    private IndexEntry changed;
+    private ObjectId[] versions;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("trees");
+        repo = Repository.init(dir.toString());
+        index = Fixtures.index(entries);
+        new TreeBuilder(repo, index).buildId();
+
+        // Alternating between two ids dirties one path per call without writing new trees each time
+        changed = index.getEntry(Fixtures.path(entries / 2));
+        versions = new ObjectId[] {changed.getId(), Fixtures.index(1).getEntries().get(0).getId()};
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public ObjectId full() throws IOException {
+        // Every tree is serialized and hashed; the objects already exist so nothing is rewritten
+        index.getCacheTree().clear();
+        return new TreeBuilder(repo, index).buildId();
+    }
+
+    @Benchmark
+    public ObjectId incremental() throws IOException {
+        // What a commit after changing one file pays with the cache-tree
+        index.addEntry(new IndexEntry(changed.getPath(), versions[next++ & 1], changed.getMode(), changed.getSize()));
+        return new TreeBuilder(repo, index).buildId();
+    }
+}
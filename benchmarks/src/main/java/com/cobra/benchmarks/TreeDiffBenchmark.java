@@ -0,0 +1,53 @@
+package com.cobra.benchmarks;
+
+import com.cobra.core.Commit;
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import com.cobra.core.TreeDiff;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TreeDiffBenchmark {
+
+    @Param({"10000", "100000"})
+    public int files;
+
+    // Files changed by the last commit; the time should follow this, not the tree size
+    @Param({"1", "100"})
+    public int churn;
+
+    private Path dir;
+    private Repository repo;
+    private ObjectId oldTree;
+    private ObjectId newTree;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("treediff");
+        repo = Fixtures.generated(dir, files, 2, churn);
+        Commit head = Commit.parse(repo.readObject(repo.getRefStore().getHead()));
+        Commit parent = Commit.parse(repo.readObject(head.getParent(0)));
+        newTree = ObjectId.fromHex(head.getTreeHash());
+        oldTree = ObjectId.fromHex(parent.getTreeHash());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public List<TreeDiff.Change> diff() throws IOException {
+        return new TreeDiff(repo).diff(oldTree, newTree);
+    }
+}
@@ -0,0 +1,56 @@
+package com.cobra.benchmarks;
+
+import com.cobra.utils.WorkingTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkingTreeWalkerBenchmark {
+
+    @Param({"10000"})
+    public int files;
+
+    // Build outputs next to the sources; pruned directories are never opened
+    @Param({"0", "200000"})
+    public int ignored;
+
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Fixtures.tempDir("walk");
+        for (int i = 0; i < files; i++) {
+            write(dir.resolve(Fixtures.path(i)));
+        }
+        for (int i = 0; i < ignored; i++) {
+            write(dir.resolve("out").resolve(Fixtures.path(i)));
+        }
+        Files.write(dir.resolve(".cobraignore"), "/out/\n*.tmp\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(dir);
+    }
+
+    @Benchmark
+    public List<Path> walk() throws IOException {
+        return new WorkingTreeWalker(dir).walk();
+    }
+
+    private static void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[0]);
+    }
+}
@@ -1,10 +1,17 @@
 package com.cobra;
 
 import com.cobra.cli.CLI;
+import com.cobra.cli.DaemonClient;
 import java.io.IOException;
 
 public class Jobra {
     public static void main(String[] args) {
+        // A running daemon answers with warm repositories, otherwise the command runs here
+        int status = DaemonClient.forward(args);
+        if (status != DaemonClient.NOT_FORWARDED) {
+            System.exit(status);
+        }
+        
         try {
             CLI.run(args);
         } catch (IOException e) {
@@ -1,14 +1,27 @@
 package com.cobra.cli;
 
 import com.cobra.commands.*;
+import com.cobra.core.LineDiff;
+import com.cobra.core.RepositoryGenerator;
+import com.cobra.utils.HashAlgorithm;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CLI {
     public static void run(String[] args) throws IOException {
+        int status = execute(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+    
+    public static int execute(String[] args) {
+        // Returns the exit status instead of exiting, the daemon runs many commands per process
         if (args.length == 0) {
             printHelp();
-            return;
+            return 0;
         }
         
         String command = args[0];
@@ -30,12 +43,27 @@ public class CLI {
                 case "status":
                     handleStatus(args);
                     break;
+                case "diff":
+                    handleDiff(args);
+                    break;
                 case "branch":
                     handleBranch(args);
                     break;
                 case "stash":
                     handleStash(args);
                     break;
+                case "repack":
+                    RepackCommand.run();
+                    break;
+                case "commit-graph":
+                    handleCommitGraph(args);
+                    break;
+                case "debug":
+                    handleDebug(args);
+                    break;
+                case "daemon":
+                    handleDaemon(args);
+                    break;
                 case "help":
                 case "-h":
                 case "--help":
@@ -50,24 +78,56 @@ public class CLI {
                     printHelp();
                     break;
             }
+            return 0;
+        } catch (ExitException e) {
+            return e.status;
         } catch (Exception e) {
             System.err.println("Error executing command: " + e.getMessage());
-            System.exit(1);
+            return 1;
         }
     }
     
     private static void handleInit(String[] args) throws IOException {
-        String path = args.length > 1 ? args[1] : ".";
-        InitCommand.run(path);
+        String path = ".";
+        HashAlgorithm hashAlgorithm = HashAlgorithm.SHA256;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--object-format=")) {
+                hashAlgorithm = HashAlgorithm.fromName(args[i].substring("--object-format=".length()));
+            } else if (args[i].equals("--object-format") && i + 1 < args.length) {
+                hashAlgorithm = HashAlgorithm.fromName(args[++i]);
+            } else {
+                path = args[i];
+            }
+        }
+        InitCommand.run(path, hashAlgorithm);
     }
     
     private static void handleAdd(String[] args) throws IOException {
-        if (args.length < 2) {
+        List<String> pathspecs = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean all = false;
+        
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-A") || args[i].equals("--all")) {
+                all = true;
+            } else if ((args[i].equals("-j") || args[i].equals("--jobs")) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].startsWith("--jobs=")) {
+                threads = Integer.parseInt(args[i].substring("--jobs=".length()));
+            } else {
+                pathspecs.add(args[i]);
+            }
+        }
+        
+        if (all) {
+            AddCommand.runAll(threads);
+            return;
+        }
+        if (pathspecs.isEmpty()) {
             System.err.println("Error: file argument required");
-            System.exit(1);
+            throw new ExitException(1);
         }
-        String file = args[1];
-        AddCommand.run(file);
+        AddCommand.run(pathspecs, threads);
     }
     
     private static void handleCommit(String[] args) throws IOException {
@@ -87,18 +147,61 @@ public class CLI {
         if (message == null) {
             System.err.println("Error: commit message required (-m or --message)");
             System.err.println("Example: cobra commit -m \"your message\"");
-            System.exit(1);
+            throw new ExitException(1);
         }
         
         CommitCommand.run(message);
     }
     
     private static void handleLog(String[] args) throws IOException {
-        LogCommand.run();
+        // Everything after "--" limits the log to commits touching that path
+        String path = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--") && i + 1 < args.length) {
+                path = args[i + 1];
+                break;
+            }
+        }
+        LogCommand.run(path);
     }
     
     private static void handleStatus(String[] args) throws IOException {
-        StatusCommand.run();
+        boolean porcelain = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--porcelain")) {
+                porcelain = true;
+            }
+        }
+        StatusCommand.run(porcelain);
+    }
+    
+    private static void handleDiff(String[] args) throws IOException {
+        boolean nameStatus = false;
+        LineDiff.Algorithm algorithm = LineDiff.Algorithm.HISTOGRAM;
+        int context = 3;
+        List<String> revisions = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--name-status")) {
+                nameStatus = true;
+            } else if (args[i].equals("--myers")) {
+                algorithm = LineDiff.Algorithm.MYERS;
+            } else if (args[i].equals("--histogram")) {
+                algorithm = LineDiff.Algorithm.HISTOGRAM;
+            } else if (args[i].matches("-U\\d+")) {
+                context = Integer.parseInt(args[i].substring(2));
+            } else {
+                revisions.add(args[i]);
+            }
+        }
+        if (revisions.size() == 1 || revisions.size() > 2) {
+            System.err.println("Usage: cobra diff [--name-status] [--myers|--histogram] [-U<n>] [<from> <to>]");
+            throw new ExitException(1);
+        }
+        if (revisions.isEmpty()) {
+            DiffCommand.run(null, null, nameStatus, algorithm, context);
+        } else {
+            DiffCommand.run(revisions.get(0), revisions.get(1), nameStatus, algorithm, context);
+        }
     }
     
     private static void handleBranch(String[] args) throws IOException {
@@ -116,35 +219,35 @@ public class CLI {
             case "create":
                 if (args.length < 3) {
                     System.err.println("Error: branch name required");
-                    System.exit(1);
+                    throw new ExitException(1);
                 }
                 BranchCommand.create(args[2]);
                 break;
             case "checkout":
                 if (args.length < 3) {
                     System.err.println("Error: branch name required");
-                    System.exit(1);
+                    throw new ExitException(1);
                 }
                 BranchCommand.checkout(args[2]);
                 break;
             case "delete":
                 if (args.length < 3) {
                     System.err.println("Error: branch name required");
-                    System.exit(1);
+                    throw new ExitException(1);
                 }
                 BranchCommand.delete(args[2]);
                 break;
             case "merge":
                 if (args.length < 3) {
                     System.err.println("Error: branch name required");
-                    System.exit(1);
+                    throw new ExitException(1);
                 }
                 BranchCommand.merge(args[2]);
                 break;
             case "rebase":
                 if (args.length < 3) {
                     System.err.println("Error: branch name required");
-                    System.exit(1);
+                    throw new ExitException(1);
                 }
                 BranchCommand.rebase(args[2]);
                 break;
@@ -155,6 +258,114 @@ public class CLI {
         }
     }
     
+    private static void handleCommitGraph(String[] args) throws IOException {
+        if (args.length < 2 || !args[1].equals("write")) {
+            System.out.println("Usage: commit-graph write");
+            return;
+        }
+        CommitGraphCommand.write();
+    }
+    
+    private static void handleDebug(String[] args) throws IOException {
+        if (args.length < 2 || !args[1].equals("generate")) {
+            System.out.println("Usage: debug generate [path] [options]");
+            return;
+        }
+        
+        String path = ".";
+        RepositoryGenerator.Options options = new RepositoryGenerator.Options();
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                path = arg;
+                continue;
+            }
+            
+            // Options take --name=value or --name value
+            String name = arg;
+            String value = null;
+            int equals = arg.indexOf('=');
+            if (equals >= 0) {
+                name = arg.substring(0, equals);
+                value = arg.substring(equals + 1);
+            } else if (!name.equals("--pack") && i + 1 < args.length) {
+                value = args[++i];
+            }
+            
+            switch (name) {
+                case "--seed":
+                    options.seed(Long.parseLong(value));
+                    break;
+                case "--files":
+                    options.files(Integer.parseInt(value));
+                    break;
+                case "--depth":
+                    options.depth(Integer.parseInt(value));
+                    break;
+                case "--width":
+                    options.width(Integer.parseInt(value));
+                    break;
+                case "--median-size":
+                    options.medianSize(Integer.parseInt(value));
+                    break;
+                case "--max-size":
+                    options.maxSize(Integer.parseInt(value));
+                    break;
+                case "--binary-ratio":
+                    options.binaryRatio(Double.parseDouble(value));
+                    break;
+                case "--binary-size":
+                    options.binarySize(Integer.parseInt(value));
+                    break;
+                case "--commits":
+                    options.commits(Integer.parseInt(value));
+                    break;
+                case "--branches":
+                    options.branches(Integer.parseInt(value));
+                    break;
+                case "--churn":
+                    options.churn(Integer.parseInt(value));
+                    break;
+                case "--object-format":
+                    options.hashAlgorithm(HashAlgorithm.fromName(value));
+                    break;
+                case "--pack":
+                    options.pack(true);
+                    break;
+                default:
+                    System.err.println("Error: unknown option " + name);
+                    throw new ExitException(1);
+            }
+        }
+        DebugCommand.generate(path, options);
+    }
+    
+    private static void handleDaemon(String[] args) throws IOException {
+        // Reaching this in-process means no daemon answered, so only starting one makes sense
+        String subCommand = args.length > 1 && !args[1].startsWith("--") ? args[1] : "start";
+        switch (subCommand) {
+            case "start":
+                long idleTimeout = DaemonServer.DEFAULT_IDLE_TIMEOUT_SECONDS;
+                for (int i = 1; i < args.length; i++) {
+                    if (args[i].startsWith("--idle-timeout=")) {
+                        idleTimeout = Long.parseLong(args[i].substring("--idle-timeout=".length()));
+                    } else if (args[i].equals("--idle-timeout") && i + 1 < args.length) {
+                        idleTimeout = Long.parseLong(args[++i]);
+                    }
+                }
+                new DaemonServer(idleTimeout * 1000).serve();
+                break;
+            case "stop":
+            case "status":
+                System.out.println("No daemon is running");
+                break;
+            default:
+                System.out.println("Unknown daemon command: " + subCommand);
+                System.out.println("Available commands: start, stop, status");
+                break;
+        }
+    }
+    
     private static void handleStash(String[] args) throws IOException {
         if (args.length < 2) {
             System.out.println("No stash subcommand was used");
@@ -204,13 +415,21 @@ public class CLI {
         System.out.println("Usage: java -jar cobra.jar [COMMAND]");
         System.out.println();
         System.out.println("Commands:");
-        System.out.println("  init [path]           Initialize a new repository");
-        System.out.println("  add <file>            Add file contents to the index");
+        System.out.println("  init [path] [--object-format=sha256|blake3]");
+        System.out.println("                        Initialize a new repository");
+        System.out.println("  add <pathspec>...     Add files, directories or globs to the index");
+        System.out.println("  add -A                Stage all changes, including new and deleted files");
         System.out.println("  commit -m <message>   Record changes to the repository");
-        System.out.println("  log                   Show commit logs");
-        System.out.println("  status                Show the working tree status");
+        System.out.println("  log [-- <path>]       Show commit logs, optionally only those touching a path");
+        System.out.println("  status [--porcelain]  Show the working tree status");
+        System.out.println("  diff [--name-status] [<from> <to>]");
+        System.out.println("                        Show unstaged changes, or changes between two commits or trees");
         System.out.println("  branch                List, create, or delete branches");
         System.out.println("  stash                 Stash changes in a dirty working directory");
+        System.out.println("  repack                Pack loose objects into a delta-compressed pack file");
+        System.out.println("  commit-graph write    Rebuild the commit-graph from all branches");
+        System.out.println("  debug generate [path] Write a synthetic repository for scale testing");
+        System.out.println("  daemon [stop|status]  Serve commands from a long-running process");
         System.out.println("  help                  Print this message");
         System.out.println("  -v, --version         Print version");
         System.out.println();
@@ -228,5 +447,40 @@ public class CLI {
         System.out.println("  show [stash]          Show the contents of a stash");
         System.out.println("  apply [stash]         Apply a stash to the working directory");
         System.out.println("  drop [stash]          Remove a stash from the stash list");
+        System.out.println();
+        System.out.println("Diff options:");
+        System.out.println("  --name-status         List changed files instead of showing patches");
+        System.out.println("  --histogram, --myers  Line diff algorithm (histogram by default)");
+        System.out.println("  -U<n>                 Lines of context around each change (3)");
+        System.out.println();
+        System.out.println("Daemon options:");
+        System.out.println("  --idle-timeout <s>    Close repositories unused for this long (300)");
+        System.out.println("  While a daemon runs, cobra forwards commands to it; set COBRA_NO_DAEMON to run in-process");
+        System.out.println("  With core.fsmonitor=true in .cobra/config the daemon watches the working tree,");
+        System.out.println("  so status and add -A only examine paths that changed");
+        System.out.println();
+        System.out.println("Debug generate options:");
+        System.out.println("  --seed <n>            Random seed, the same seed gives the same repository (1)");
+        System.out.println("  --files <n>           Files in the initial import (1000)");
+        System.out.println("  --depth <n>           Directory depth (3)");
+        System.out.println("  --width <n>           Subdirectories per directory (4)");
+        System.out.println("  --median-size <n>     Median text file size in bytes (4096)");
+        System.out.println("  --max-size <n>        Largest text file in bytes (1048576)");
+        System.out.println("  --binary-ratio <f>    Fraction of files that are binaries (0.001)");
+        System.out.println("  --binary-size <n>     Size of each binary in bytes (8388608)");
+        System.out.println("  --commits <n>         Total commits, including the import (100)");
+        System.out.println("  --branches <n>        Branches, including main (1)");
+        System.out.println("  --churn <n>           Files changed per commit (10)");
+        System.out.println("  --object-format <a>   sha256 or blake3 (sha256)");
+        System.out.println("  --pack                Repack all objects at the end");
+    }
+    
+    private static class ExitException extends RuntimeException {
+        private final int status;
+        
+        ExitException(int status) {
+            super(null, null, false, false);
+            this.status = status;
+        }
     }
 } 
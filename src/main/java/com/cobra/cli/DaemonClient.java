@@ -0,0 +1,122 @@
+package com.cobra.cli;
+
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DaemonClient {
+    // Returned by forward() when the command has to run in this process
+    public static final int NOT_FORWARDED = -1;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+
+    public static int forward(String[] args) {
+        if (System.getenv("COBRA_NO_DAEMON") != null || isStart(args)) {
+            return NOT_FORWARDED;
+        }
+        Socket socket = connect();
+        if (socket == null) {
+            return NOT_FORWARDED;
+        }
+
+        // Once connected the daemon may already have acted, so failures are reported rather than retried
+        try (Socket daemon = socket) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(daemon.getOutputStream()));
+            out.writeInt(DaemonServer.PROTOCOL_VERSION);
+            out.writeUTF(readAddress()[1]);
+            out.writeUTF(WorkingDirectory.get().toString());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(daemon.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte channel = in.readByte();
+                if (channel == DaemonServer.FRAME_EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return in.readInt();
+                }
+                PrintStream target = channel == DaemonServer.FRAME_STDERR ? System.err : System.out;
+                int remaining = in.readInt();
+                while (remaining > 0) {
+                    int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new IOException("Daemon closed the connection");
+                    }
+                    target.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        } catch (IOException e) {
+            System.out.flush();
+            System.err.println("Error: lost connection to the daemon: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    public static boolean isRunning() {
+        Socket socket = connect();
+        if (socket == null) {
+            return false;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Connecting was all we needed
+        }
+        return true;
+    }
+
+    private static boolean isStart(String[] args) {
+        // Starting a daemon always happens in-process, everything else may be forwarded
+        return args.length > 0 && args[0].equals("daemon")
+            && (args.length == 1 || args[1].equals("start") || args[1].startsWith("--"));
+    }
+
+    private static Socket connect() {
+        String[] address = readAddress();
+        if (address == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(address[0])), CONNECT_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            return socket;
+        } catch (IOException | NumberFormatException e) {
+            // A file left behind by a daemon that did not shut down cleanly
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Nothing was opened
+            }
+            return null;
+        }
+    }
+
+    private static String[] readAddress() {
+        Path file = DaemonServer.getAddressFile();
+        try {
+            String[] address = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim().split(" ");
+            return address.length == 2 ? address : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
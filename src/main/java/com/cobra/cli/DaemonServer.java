@@ -0,0 +1,291 @@
+package com.cobra.cli;
+
+import com.cobra.core.RepositoryPool;
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DaemonServer {
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+
+    // Frames sent back to the client: a channel byte, then a length and payload or the exit status
+    static final int PROTOCOL_VERSION = 1;
+    static final byte FRAME_EXIT = 0;
+    static final byte FRAME_STDOUT = 1;
+    static final byte FRAME_STDERR = 2;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final RepositoryPool pool;
+    private final String token;
+    private final AtomicLong requests = new AtomicLong();
+    private final long started = System.currentTimeMillis();
+    private ServerSocket server;
+    private volatile boolean running;
+
+    public DaemonServer(long idleTimeoutMillis) {
+        this.pool = new RepositoryPool(idleTimeoutMillis);
+        byte[] secret = new byte[24];
+        new SecureRandom().nextBytes(secret);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    public static Path getAddressFile() {
+        // Not inside a .cobra directory, a repository may live in the home directory itself
+        return Paths.get(System.getProperty("user.home"), ".cobra-daemon");
+    }
+
+    public void serve() throws IOException {
+        if (DaemonClient.isRunning()) {
+            System.out.println("A daemon is already running");
+            return;
+        }
+
+        // Loopback only; the token in the owner-readable address file keeps other users out
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        running = true;
+        writeAddressFile(server.getLocalPort());
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        System.setOut(new PrintStream(new RoutedStream(stdout, 0), false));
+        System.setErr(new PrintStream(new RoutedStream(stderr, 1), false));
+        RepositoryPool.install(pool);
+
+        ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "cobra-daemon-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cobra-daemon-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1000, Math.min(pool.getIdleTimeoutMillis(), 30_000));
+        sweeper.scheduleWithFixedDelay(pool::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::deleteAddressFile));
+
+        stdout.println("Daemon listening on " + server.getLocalSocketAddress()
+            + " (" + getAddressFile() + ")");
+        stdout.flush();
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketException e) {
+                    // Closed by "daemon stop"
+                    break;
+                }
+                workers.execute(() -> handle(socket));
+            }
+        } finally {
+            // Let running commands, including the one that asked to stop, answer their clients
+            sweeper.shutdownNow();
+            workers.shutdown();
+            try {
+                workers.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deleteAddressFile();
+            System.setOut(stdout);
+            System.setErr(stderr);
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+
+            if (in.readInt() != PROTOCOL_VERSION || !token.equals(in.readUTF())) {
+                return;
+            }
+            Path cwd = Paths.get(in.readUTF());
+            String[] args = new String[in.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = in.readUTF();
+            }
+
+            int status = run(cwd, args, out);
+            synchronized (out) {
+                out.writeByte(FRAME_EXIT);
+                out.writeInt(status);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away, there is nobody left to report to
+        }
+    }
+
+    private int run(Path cwd, String[] args, DataOutputStream out) throws IOException {
+        requests.incrementAndGet();
+        OutputStream stdout = new BufferedOutputStream(new FrameStream(out, FRAME_STDOUT), OUTPUT_BUFFER_SIZE);
+        OutputStream stderr = new BufferedOutputStream(new FrameStream(out, FRAME_STDERR), OUTPUT_BUFFER_SIZE);
+        RoutedStream.TARGET.set(new OutputStream[] {stdout, stderr});
+        WorkingDirectory.set(cwd);
+        try {
+            if (args.length > 0 && args[0].equals("daemon")) {
+                return control(args);
+            }
+            try (RepositoryPool.Lease lease = pool.lease(cwd)) {
+                int status = CLI.execute(args);
+                if (status != 0) {
+                    lease.fail();
+                }
+                return status;
+            }
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            RoutedStream.TARGET.remove();
+            WorkingDirectory.clear();
+        }
+    }
+
+    private int control(String[] args) throws IOException {
+        String subCommand = args.length > 1 && !args[1].startsWith("--") ? args[1] : "start";
+        switch (subCommand) {
+            case "status":
+                System.out.println("Daemon running on port " + server.getLocalPort());
+                System.out.println("  uptime " + (System.currentTimeMillis() - started) / 1000 + "s, "
+                    + requests.get() + " requests");
+                System.out.println("  " + pool.size() + " open repositories, idle timeout "
+                    + pool.getIdleTimeoutMillis() / 1000 + "s");
+                return 0;
+            case "stop":
+                System.out.println("Stopping daemon");
+                running = false;
+                server.close();
+                return 0;
+            case "start":
+                System.out.println("A daemon is already running");
+                return 0;
+            default:
+                System.out.println("Unknown daemon command: " + subCommand);
+                return 1;
+        }
+    }
+
+    private void writeAddressFile(int port) throws IOException {
+        Path file = getAddressFile();
+        Path temp = Files.createTempFile(file.getParent(), ".cobra-daemon", ".tmp");
+        try {
+            try {
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Non-POSIX file systems rely on the home directory's own permissions
+            }
+            Files.write(temp, (port + " " + token + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void deleteAddressFile() {
+        // Only remove the file if it still names this daemon
+        try {
+            Path file = getAddressFile();
+            if (Files.exists(file) && new String(Files.readAllBytes(file), StandardCharsets.UTF_8).contains(token)) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            // A stale file is harmless, clients fall back when nothing listens on its port
+        }
+    }
+
+    private static class RoutedStream extends OutputStream {
+        // System.out and System.err are process-wide, so each request thread writes to its own client
+        static final ThreadLocal<OutputStream[]> TARGET = new ThreadLocal<>();
+
+        private final OutputStream fallback;
+        private final int channel;
+
+        RoutedStream(OutputStream fallback, int channel) {
+            this.fallback = fallback;
+            this.channel = channel;
+        }
+
+        private OutputStream target() {
+            // Threads outside a request, such as the sweeper, keep the daemon's own streams
+            OutputStream[] streams = TARGET.get();
+            return streams != null ? streams[channel] : fallback;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    private static class FrameStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte channel;
+
+        FrameStream(DataOutputStream out, byte channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(channel);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -1,61 +1,202 @@
 package com.cobra.commands;
 
 import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
 import com.cobra.core.IndexEntry;
-import com.cobra.utils.HashUtils;
+import com.cobra.core.IndexTransaction;
+import com.cobra.core.ObjectId;
+import com.cobra.core.WorkingTreeChanges;
+import com.cobra.utils.FileStat;
 import com.cobra.utils.FileUtils;
+import com.cobra.utils.WorkingDirectory;
+import com.cobra.utils.WorkingTreeWalker;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 public class AddCommand {
     
     public static void run(String file) throws IOException {
+        run(Collections.singletonList(file), Runtime.getRuntime().availableProcessors());
+    }
+    
+    public static void run(List<String> pathspecs, int threads) throws IOException {
         // Find repository
         Repository repo = findRepository();
+        Path repoRoot = repo.getRootPath().toAbsolutePath().normalize();
+        Path cobraDir = repo.getJobraDir().toAbsolutePath().normalize();
+        
+        // Expand directories and globs into a sorted, duplicate-free list of files
+        WorkingTreeWalker walker = new WorkingTreeWalker(repoRoot);
+        Set<Path> files = new TreeSet<>();
+        for (String pathspec : pathspecs) {
+            files.addAll(expand(walker, pathspec));
+        }
+        files.removeIf(path -> path.startsWith(cobraDir) || !path.startsWith(repoRoot));
         
-        // Get absolute path of file
-        Path filePath = Paths.get(file).toAbsolutePath();
-        Path repoRoot = repo.getRootPath();
+        if (files.isEmpty()) {
+            System.out.println("Nothing to add");
+            return;
+        }
         
-        // Check if file exists
-        if (!filePath.toFile().exists()) {
-            throw new IOException("File not found: " + file);
+        int added = addFiles(repo, new ArrayList<>(files), threads);
+        
+        if (added == 1) {
+            String relativePath = repoRoot.relativize(files.iterator().next()).toString();
+            System.out.println("Added '" + relativePath + "' to staging area");
+        } else {
+            System.out.println("Added " + added + " files to staging area");
+        }
+    }
+    
+    public static void runAll(int threads) throws IOException {
+        // Stage every modification, new file and deletion in the working tree
+        Repository repo = findRepository();
+        WorkingTreeChanges changes = WorkingTreeChanges.scan(repo);
+        List<Path> files = new ArrayList<>();
+        for (String path : changes.getModified()) {
+            files.add(repo.getRootPath().resolve(path));
+        }
+        for (String path : changes.getUntracked()) {
+            files.add(repo.getRootPath().resolve(path));
+        }
+        
+        if (files.isEmpty() && changes.getDeleted().isEmpty()) {
+            System.out.println("Nothing to add");
+            return;
         }
         
+        addFiles(repo, files, changes.getDeleted(), threads);
+        System.out.println("Added " + files.size() + " files to staging area, removed "
+            + changes.getDeleted().size());
+    }
+    
+    public static int addFiles(Repository repo, List<Path> files, int threads) throws IOException {
+        return addFiles(repo, files, Collections.emptyList(), threads);
+    }
+    
+    private static int addFiles(Repository repo, List<Path> files, List<String> removed, int threads)
+            throws IOException {
+        Path repoRoot = repo.getRootPath().toAbsolutePath().normalize();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        
+        // Hash and store blobs in parallel, the index is written once at the end
+        try (IndexTransaction transaction = repo.beginIndexTransaction()) {
+            List<Future<?>> results = new ArrayList<>(files.size());
+            for (Path filePath : files) {
+                results.add(pool.submit(() -> {
+                    transaction.stage(createEntry(repo, repoRoot, filePath));
+                    return null;
+                }));
+            }
+            
+            for (Future<?> result : results) {
+                waitFor(result);
+            }
+            for (String path : removed) {
+                transaction.remove(path);
+            }
+            
+            transaction.commit();
+        } finally {
+            pool.shutdownNow();
+        }
+        return files.size();
+    }
+    
+    private static IndexEntry createEntry(Repository repo, Path repoRoot, Path filePath) throws IOException {
         // Get relative path from repository root
         String relativePath = repoRoot.relativize(filePath).toString();
         
+        // Stat before hashing, so a write during hashing shows up as a stat change later
+        FileStat stat = FileStat.of(filePath);
+        
         // Create blob object
-        String blobHash = repo.createBlob(filePath);
+        ObjectId blobId = repo.insertBlob(filePath);
         
         // Get file mode
         String mode = FileUtils.getFileMode(filePath);
         
-        // Get file size
-        long size = filePath.toFile().length();
+        return new IndexEntry(relativePath, blobId, mode, stat);
+    }
+    
+    private static List<Path> expand(WorkingTreeWalker walker, String pathspec) throws IOException {
+        Path cwd = WorkingDirectory.get();
         
-        // Create index entry
-        IndexEntry entry = new IndexEntry(relativePath, blobHash, mode, size);
+        if (isGlob(pathspec)) {
+            // Walk from the longest literal directory prefix and match relative to the working directory
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pathspec);
+            Path base = cwd.resolve(globBase(pathspec)).normalize();
+            if (!Files.isDirectory(base) || !base.startsWith(walker.getRoot())) {
+                return Collections.emptyList();
+            }
+            return walker.walk(base).stream()
+                         .filter(path -> matcher.matches(cwd.relativize(path)))
+                         .collect(Collectors.toList());
+        }
         
-        // Add to index
-        repo.addToIndex(entry);
+        Path path = cwd.resolve(pathspec).normalize();
+        if (Files.isDirectory(path)) {
+            return path.startsWith(walker.getRoot()) ? walker.walk(path) : Collections.emptyList();
+        }
         
-        System.out.println("Added '" + relativePath + "' to staging area");
+        // Check if file exists
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + pathspec);
+        }
+        return Collections.singletonList(path);
+    }
+    
+    private static boolean isGlob(String pathspec) {
+        return pathspec.indexOf('*') >= 0 || pathspec.indexOf('?') >= 0
+            || pathspec.indexOf('[') >= 0 || pathspec.indexOf('{') >= 0;
+    }
+    
+    private static String globBase(String pathspec) {
+        int wildcard = pathspec.length();
+        for (char c : new char[] {'*', '?', '[', '{'}) {
+            int i = pathspec.indexOf(c);
+            if (i >= 0) {
+                wildcard = Math.min(wildcard, i);
+            }
+        }
+        int slash = pathspec.lastIndexOf('/', wildcard);
+        return slash < 0 ? "." : pathspec.substring(0, slash + 1);
+    }
+    
+    private static void waitFor(Future<?> result) throws IOException {
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while adding files", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
     }
     
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
         
         throw new IOException("Not a cobra repository (or any of the parent directories)");
     }
-} 
\ No newline at end of file
+}
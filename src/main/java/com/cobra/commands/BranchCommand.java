@@ -1,11 +1,28 @@
 package com.cobra.commands;
 
+import com.cobra.core.Commit;
+import com.cobra.core.CommitGraph;
+import com.cobra.core.Index;
+import com.cobra.core.IndexEntry;
+import com.cobra.core.IndexTransaction;
+import com.cobra.core.ObjectId;
 import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
+import com.cobra.core.StatusEngine;
+import com.cobra.core.TreeBuilder;
+import com.cobra.core.TreeDiff;
+import com.cobra.utils.FileStat;
+import com.cobra.utils.WorkingDirectory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 public class BranchCommand {
     
@@ -40,6 +57,15 @@ public class BranchCommand {
             throw new IOException("Branch '" + name + "' not found");
         }
         
+        // The index and working tree follow HEAD, so they must match it before they are switched.
+        // An unborn branch has no tree yet and keeps whatever is there.
+        String currentHead = repo.getRefStore().getHead();
+        if (!branchHead.isEmpty() && !branchHead.equals(currentHead)) {
+            Set<String> untracked = checkClean(repo, "switch branches");
+            ObjectId from = currentHead != null && !currentHead.isEmpty() ? readTree(repo, currentHead) : null;
+            applyChanges(repo, new TreeDiff(repo).diff(from, readTree(repo, branchHead)), untracked);
+        }
+        
         // Switch to branch
         repo.getRefStore().setHead("refs/heads/" + name);
         System.out.println("Switched to branch '" + name + "'");
@@ -66,14 +92,262 @@ public class BranchCommand {
             throw new IOException("Branch '" + name + "' not found");
         }
         
-        // For now, just create a merge commit (simplified)
         String currentHead = repo.getRefStore().getHead();
-        String treeHash = "tree-hash"; // This would be computed from the merged tree
+        if (branchHead.isEmpty()) {
+            System.out.println("Already up to date");
+            return;
+        }
+        
+        // Ancestry is answered from the commit-graph without reading commit objects
+        boolean hasHead = currentHead != null && !currentHead.isEmpty();
+        CommitGraph graph = repo.getCommitGraph(hasHead ? Arrays.asList(currentHead, branchHead)
+                                                        : Collections.singletonList(branchHead));
+        int theirs = graph.findPosition(branchHead);
+        ObjectId theirTree = ObjectId.fromHex(graph.getTreeHash(theirs));
+        if (!hasHead) {
+            applyChanges(repo, new TreeDiff(repo).diff(null, theirTree), checkClean(repo, "merge"));
+            updateHead(repo, branchHead);
+            System.out.println("Fast-forward to " + branchHead.substring(0, 8));
+            return;
+        }
+        
+        int ours = graph.findPosition(currentHead);
+        if (graph.isAncestor(theirs, ours)) {
+            System.out.println("Already up to date");
+            return;
+        }
+        // The index and working tree are rewritten, so they must match HEAD first
+        Set<String> untracked = checkClean(repo, "merge");
+        ObjectId ourTree = ObjectId.fromHex(graph.getTreeHash(ours));
+        if (graph.isAncestor(ours, theirs)) {
+            applyChanges(repo, new TreeDiff(repo).diff(ourTree, theirTree), untracked);
+            updateHead(repo, branchHead);
+            System.out.println("Fast-forward to " + branchHead.substring(0, 8));
+            return;
+        }
         
-        String mergeHash = repo.createCommit("Merge branch '" + name + "'", treeHash, currentHead);
-        repo.getRefStore().setBranchHead(repo.getRefStore().getCurrentBranch(), mergeHash);
+        // Unrelated histories merge against the empty tree
+        int base = graph.mergeBase(ours, theirs);
+        ObjectId baseTree = base >= 0 ? ObjectId.fromHex(graph.getTreeHash(base)) : null;
+        applyChanges(repo, mergeChanges(repo, baseTree, ourTree, theirTree), untracked);
+        TreeBuilder builder = new TreeBuilder(repo, repo.getIndex());
+        String treeHash = builder.build();
+        if (builder.getTreesWritten() > 0) {
+            repo.saveIndex();
+        }
+        String mergeHash = repo.createCommit("Merge branch '" + name + "'", treeHash,
+            Arrays.asList(currentHead, branchHead));
+        updateHead(repo, mergeHash);
         
-        System.out.println("Merged branch '" + name + "'");
+        System.out.println("Merged branch '" + name + "'"
+            + (base >= 0 ? " (merge base " + graph.getHash(base).substring(0, 8) + ")" : ""));
+    }
+    
+    private static Set<String> checkClean(Repository repo, String action) throws IOException {
+        // Fails on staged or unstaged changes; returns the untracked files, which must not be overwritten
+        Set<String> untracked = new HashSet<>();
+        List<String> dirty = new ArrayList<>();
+        new StatusEngine(repo).run((path, index, worktree) -> {
+            if (index == StatusEngine.UNTRACKED) {
+                untracked.add(path);
+            } else {
+                dirty.add(path);
+            }
+        });
+        if (!dirty.isEmpty()) {
+            throw new IOException("Cannot " + action + " with uncommitted changes in " + dirty.get(0)
+                + (dirty.size() > 1 ? " and " + (dirty.size() - 1) + " other files" : "")
+                + "; commit or stash them first");
+        }
+        return untracked;
+    }
+    
+    private static List<TreeDiff.Change> mergeChanges(Repository repo, ObjectId baseTree, ObjectId ourTree,
+                                                      ObjectId theirTree) throws IOException {
+        // Three-way merge by path: what they changed since the merge base is applied on top of our
+        // tree, where we left that path as it was in the base. Both sides changing a path differently
+        // is a conflict; line-level merging is not supported, so nothing is written in that case.
+        TreeDiff diff = new TreeDiff(repo);
+        Map<String, TreeDiff.Change> ourChanges = new HashMap<>();
+        for (TreeDiff.Change change : diff.diff(baseTree, ourTree)) {
+            ourChanges.put(change.getPath(), change);
+        }
+        List<TreeDiff.Change> changes = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        for (TreeDiff.Change their : diff.diff(baseTree, theirTree)) {
+            TreeDiff.Change our = ourChanges.get(their.getPath());
+            if (our == null) {
+                changes.add(their);
+            } else if (!Objects.equals(our.getNewId(), their.getNewId()) || our.getNewMode() != their.getNewMode()) {
+                conflicts.add(their.getPath());
+            }
+        }
+        
+        // A file on one side where the other side has a directory also conflicts
+        NavigableSet<String> paths = new TreeSet<>(Index.PATH_ORDER);
+        for (IndexEntry entry : repo.getIndex().getEntries()) {
+            paths.add(entry.getPath());
+        }
+        for (TreeDiff.Change change : changes) {
+            if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                paths.remove(change.getPath());
+            }
+        }
+        for (TreeDiff.Change change : changes) {
+            if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                continue;
+            }
+            String path = change.getPath();
+            String below = paths.ceiling(path + "/");
+            boolean clash = below != null && below.startsWith(path + "/");
+            for (int slash = path.indexOf('/'); slash >= 0 && !clash; slash = path.indexOf('/', slash + 1)) {
+                clash = paths.contains(path.substring(0, slash));
+            }
+            if (clash) {
+                conflicts.add(path);
+            }
+        }
+        
+        if (!conflicts.isEmpty()) {
+            Collections.sort(conflicts);
+            throw new IOException("Merge conflict in " + String.join(", ", conflicts)
+                + "; both branches changed these paths and conflicting merges are not supported");
+        }
+        return changes;
+    }
+    
+    private static void applyChanges(Repository repo, List<TreeDiff.Change> changes, Set<String> untracked)
+            throws IOException {
+        // Brings the working tree and index from one tree to another. Deletions go first, so a
+        // directory can be replaced by a file of the same name and the other way round.
+        Path root = repo.getRootPath();
+        for (TreeDiff.Change change : changes) {
+            if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                continue;
+            }
+            String path = change.getPath();
+            for (String file : untracked) {
+                if (file.equals(path) || file.startsWith(path + "/")) {
+                    throw new IOException("Untracked file " + file + " would be overwritten; move or remove it first");
+                }
+            }
+        }
+        
+        // New content is written out under .cobra first, so a missing or unreadable object fails
+        // before the working tree is touched. Replaced and deleted files are moved aside rather than
+        // removed, which lets a failure while moving files into place put everything back.
+        Path staging = Files.createTempDirectory(repo.getJobraDir(), "tmp_checkout_");
+        try {
+            Map<String, Path> staged = new HashMap<>();
+            for (TreeDiff.Change change : changes) {
+                if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                    continue;
+                }
+                Path file = staging.resolve("new" + staged.size());
+                try (InputStream in = repo.openObjectStream(change.getNewId())) {
+                    Files.copy(in, file);
+                }
+                file.toFile().setExecutable(change.getNewMode() == 0100755);
+                staged.put(change.getPath(), file);
+            }
+            
+            Deque<Path[]> undo = new ArrayDeque<>();
+            try (IndexTransaction transaction = repo.beginIndexTransaction()) {
+                try {
+                    for (TreeDiff.Change change : changes) {
+                        if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                            Path file = root.resolve(change.getPath());
+                            moveAside(file, staging, undo);
+                            removeEmptyParents(root, file.getParent());
+                            transaction.remove(change.getPath());
+                        }
+                    }
+                    for (TreeDiff.Change change : changes) {
+                        if (change.getType() == TreeDiff.ChangeType.DELETED) {
+                            continue;
+                        }
+                        Path file = root.resolve(change.getPath());
+                        moveAside(file, staging, undo);
+                        Files.createDirectories(file.getParent());
+                        Files.move(staged.get(change.getPath()), file);
+                        undo.push(new Path[] {null, file});
+                        String mode = Integer.toOctalString(change.getNewMode());
+                        transaction.stage(new IndexEntry(change.getPath(), change.getNewId(), mode, FileStat.of(file)));
+                    }
+                    transaction.commit();
+                } catch (IOException | RuntimeException e) {
+                    rollback(root, undo, e);
+                    throw e;
+                }
+            }
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+    
+    private static void moveAside(Path file, Path staging, Deque<Path[]> undo) throws IOException {
+        if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+            Path saved = staging.resolve("old" + undo.size());
+            Files.move(file, saved);
+            undo.push(new Path[] {saved, file});
+        }
+    }
+    
+    private static void rollback(Path root, Deque<Path[]> undo, Exception failure) {
+        // Newest first: files moved into place are removed, files moved aside are restored
+        while (!undo.isEmpty()) {
+            Path[] step = undo.pop();
+            try {
+                if (step[0] == null) {
+                    Files.deleteIfExists(step[1]);
+                    removeEmptyParents(root, step[1].getParent());
+                } else {
+                    Files.createDirectories(step[1].getParent());
+                    Files.move(step[0], step[1]);
+                }
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+    
+    private static ObjectId readTree(Repository repo, String commitHash) throws IOException {
+        return ObjectId.fromHex(Commit.parse(repo.readObject(commitHash)).getTreeHash());
+    }
+    
+    private static void removeEmptyParents(Path root, Path dir) throws IOException {
+        while (dir != null && !dir.equals(root)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                if (entries.iterator().hasNext()) {
+                    return;
+                }
+            } catch (NoSuchFileException e) {
+                dir = dir.getParent();
+                continue;
+            }
+            Files.delete(dir);
+            dir = dir.getParent();
+        }
+    }
+    
+    private static void updateHead(Repository repo, String commitHash) throws IOException {
+        String currentBranch = repo.getRefStore().getCurrentBranch();
+        if (currentBranch != null) {
+            repo.getRefStore().setBranchHead(currentBranch, commitHash);
+        } else {
+            repo.getRefStore().setHeadCommit(commitHash);
+        }
     }
     
     public static void rebase(String name) throws IOException {
@@ -91,12 +365,12 @@ public class BranchCommand {
     }
     
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
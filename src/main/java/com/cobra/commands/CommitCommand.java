@@ -1,13 +1,12 @@
 package com.cobra.commands;
 
 import com.cobra.core.Repository;
-import com.cobra.core.Tree;
-import com.cobra.core.IndexEntry;
+import com.cobra.core.RepositoryPool;
+import com.cobra.core.TreeBuilder;
+import com.cobra.utils.WorkingDirectory;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.List;
 
 public class CommitCommand {
     
@@ -37,31 +36,24 @@ public class CommitCommand {
     }
     
     private static String createTreeFromIndex(Repository repo) throws IOException {
-        Tree tree = new Tree();
-        List<IndexEntry> entries = repo.getIndex().getEntries();
+        // Builds nested trees, reusing cached subtrees whose entries did not change
+        TreeBuilder builder = new TreeBuilder(repo, repo.getIndex());
+        String treeHash = builder.build();
         
-        for (IndexEntry entry : entries) {
-            String[] pathParts = entry.getPath().split("/");
-            String fileName = pathParts[pathParts.length - 1];
-            
-            Tree.TreeEntry treeEntry = new Tree.TreeEntry(
-                entry.getMode(),
-                fileName,
-                entry.getHash()
-            );
-            tree.addEntry(treeEntry);
+        // Persist the updated cache-tree for the next commit
+        if (builder.getTreesWritten() > 0) {
+            repo.saveIndex();
         }
-        
-        return repo.createTree(tree);
+        return treeHash;
     }
     
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
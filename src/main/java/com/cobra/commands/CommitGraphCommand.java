@@ -0,0 +1,44 @@
+package com.cobra.commands;
+
+import com.cobra.core.CommitGraph;
+import com.cobra.core.CommitGraphWriter;
+import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommitGraphCommand {
+    
+    public static void write() throws IOException {
+        // Find repository
+        Repository repo = findRepository();
+        
+        // Rebuild the graph from every branch tip and HEAD as a single layer
+        List<String> tips = new ArrayList<>();
+        for (String branch : repo.getRefStore().listBranches()) {
+            tips.add(repo.getRefStore().getBranchHead(branch));
+        }
+        tips.add(repo.getRefStore().getHead());
+        
+        CommitGraph graph = new CommitGraphWriter(repo).rewrite(tips);
+        System.out.println("Wrote commit-graph with " + graph.size() + " commits");
+    }
+    
+    private static Repository findRepository() throws IOException {
+        Path currentDir = WorkingDirectory.get();
+        
+        // Walk up the directory tree to find .cobra directory
+        while (currentDir != null) {
+            if (Repository.exists(currentDir.toString())) {
+                return RepositoryPool.open(currentDir);
+            }
+            currentDir = currentDir.getParent();
+        }
+        
+        throw new IOException("Not a cobra repository (or any of the parent directories)");
+    }
+}
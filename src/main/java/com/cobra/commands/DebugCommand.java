@@ -0,0 +1,23 @@
+package com.cobra.commands;
+
+import com.cobra.core.RepositoryGenerator;
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class DebugCommand {
+    
+    public static void generate(String path, RepositoryGenerator.Options options) throws IOException {
+        Path target = WorkingDirectory.resolve(path);
+        long start = System.nanoTime();
+        RepositoryGenerator.Result result = RepositoryGenerator.generate(target, options);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        
+        System.out.println("Generated repository in " + target);
+        System.out.println("  " + result.getFiles() + " files, " + result.getCommits() + " commits, "
+            + result.getBranches() + " branches");
+        System.out.println("  " + (result.getBytes() / 1024) + " KiB of blob content in " + millis + " ms");
+        System.out.println("  main at " + result.getHead());
+    }
+}
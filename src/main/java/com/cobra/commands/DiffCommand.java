@@ -0,0 +1,190 @@
+package com.cobra.commands;
+
+import com.cobra.core.Commit;
+import com.cobra.core.GitObject;
+import com.cobra.core.IndexEntry;
+import com.cobra.core.LineDiff;
+import com.cobra.core.ObjectId;
+import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
+import com.cobra.core.StatusEngine;
+import com.cobra.core.TreeDiff;
+import com.cobra.core.UnifiedDiffFormatter;
+import com.cobra.utils.FileUtils;
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DiffCommand {
+
+    public static void run(String from, String to, boolean nameStatus,
+                           LineDiff.Algorithm algorithm, int context) throws IOException {
+        // Without revisions the working tree is compared with the index
+        Repository repo = findRepository();
+        if (from == null) {
+            runWorkingTree(repo, nameStatus, algorithm, context);
+        } else if (nameStatus) {
+            runNameStatus(repo, from, to);
+        } else {
+            runPatch(repo, from, to, algorithm, context);
+        }
+    }
+
+    public static void runNameStatus(Repository repo, String from, String to) throws IOException {
+        // One "<status>\t<path>" line per changed file, in path order
+        ObjectId oldTree = resolveTree(repo, from);
+        ObjectId newTree = resolveTree(repo, to);
+        StringBuilder out = new StringBuilder();
+        new TreeDiff(repo).diff(oldTree, newTree, change -> {
+            out.append(change.getType().getCode()).append('\t').append(change.getPath()).append('\n');
+            return true;
+        });
+        System.out.print(out);
+        System.out.flush();
+    }
+
+    public static void runPatch(Repository repo, String from, String to,
+                                LineDiff.Algorithm algorithm, int context) throws IOException {
+        // Each file's patch is written as soon as the tree walk reaches it
+        ObjectId oldTree = resolveTree(repo, from);
+        ObjectId newTree = resolveTree(repo, to);
+        OutputStream out = new BufferedOutputStream(System.out);
+        UnifiedDiffFormatter formatter = new UnifiedDiffFormatter(repo, out, algorithm);
+        formatter.setContext(context);
+        new TreeDiff(repo).diff(oldTree, newTree, change -> {
+            formatter.format(change);
+            return true;
+        });
+        out.flush();
+    }
+
+    public static void runWorkingTree(Repository repo, boolean nameStatus,
+                                      LineDiff.Algorithm algorithm, int context) throws IOException {
+        // Unstaged changes only, found by the status engine and printed one directory at a time
+        OutputStream out = new BufferedOutputStream(System.out);
+        UnifiedDiffFormatter formatter = new UnifiedDiffFormatter(repo, out, algorithm);
+        formatter.setContext(context);
+        new StatusEngine(repo).run(new StatusEngine.Listener() {
+            @Override
+            public void onChange(String path, char index, char worktree) throws IOException {
+                if (worktree != StatusEngine.MODIFIED && worktree != StatusEngine.DELETED) {
+                    return;
+                }
+                if (nameStatus) {
+                    out.write((worktree + "\t" + path + "\n").getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                IndexEntry entry = repo.getIndex().getEntry(path);
+                int oldMode = Integer.parseInt(entry.getMode(), 8);
+                if (worktree == StatusEngine.DELETED) {
+                    formatter.format(new TreeDiff.Change(TreeDiff.ChangeType.DELETED, path,
+                        oldMode, entry.getId(), 0, null));
+                    return;
+                }
+                Path file = repo.getRootPath().resolve(path);
+                byte[] content = Files.readAllBytes(file);
+                ObjectId newId = repo.computeBlobId(file);
+                int newMode = Integer.parseInt(FileUtils.getFileMode(file), 8);
+                TreeDiff.ChangeType type = newId.equals(entry.getId())
+                    ? TreeDiff.ChangeType.MODE_CHANGED : TreeDiff.ChangeType.MODIFIED;
+                formatter.format(new TreeDiff.Change(type, path, oldMode, entry.getId(), newMode, newId),
+                    new LineDiff.Text(content));
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+        });
+        out.flush();
+    }
+
+    static ObjectId resolveTree(Repository repo, String revision) throws IOException {
+        // Accepts HEAD, a branch name or an object id, each optionally followed by
+        // "~<n>" or "^" to step back along first parents; commits resolve to their tree
+        int suffix = indexOfSuffix(revision);
+        String base = revision.substring(0, suffix);
+        int generations = parseGenerations(revision, revision.substring(suffix));
+
+        String hash;
+        if (base.equals("HEAD")) {
+            hash = repo.getRefStore().getHead();
+        } else if (repo.getRefStore().getBranchHead(base) != null) {
+            hash = repo.getRefStore().getBranchHead(base);
+        } else if (ObjectId.isId(base) && repo.hasObject(base)) {
+            hash = base;
+        } else {
+            hash = null;
+        }
+        if (hash == null || hash.isEmpty()) {
+            // An unborn branch's ref exists but names no commit
+            throw new IOException("Unknown revision: " + revision);
+        }
+
+        GitObject object = repo.readObject(hash);
+        if (object.getType().equals("tree") && generations == 0) {
+            return ObjectId.fromHex(hash);
+        }
+        if (!object.getType().equals("commit")) {
+            throw new IOException("Not a commit or tree: " + revision);
+        }
+        Commit commit = Commit.parse(object);
+        for (int i = 0; i < generations; i++) {
+            if (commit.getParentCount() == 0) {
+                throw new IOException("Revision has no parent: " + revision);
+            }
+            commit = Commit.parse(repo.readObject(commit.getParent(0)));
+        }
+        return ObjectId.fromHex(commit.getTreeHash());
+    }
+
+    private static int indexOfSuffix(String revision) {
+        int end = revision.length();
+        while (end > 0 && (Character.isDigit(revision.charAt(end - 1))
+                || revision.charAt(end - 1) == '~' || revision.charAt(end - 1) == '^')) {
+            end--;
+        }
+        // Digits belong to the name (or id) unless a '~' or '^' precedes them
+        int first = end;
+        while (first < revision.length() && Character.isDigit(revision.charAt(first))) {
+            first++;
+        }
+        return first;
+    }
+
+    private static int parseGenerations(String revision, String suffix) throws IOException {
+        int generations = 0;
+        int i = 0;
+        while (i < suffix.length()) {
+            char c = suffix.charAt(i++);
+            int digits = i;
+            while (i < suffix.length() && Character.isDigit(suffix.charAt(i))) {
+                i++;
+            }
+            if (c == '^' && i > digits) {
+                throw new IOException("Only first parents are supported: " + revision);
+            }
+            generations += i > digits ? Integer.parseInt(suffix.substring(digits, i)) : 1;
+        }
+        return generations;
+    }
+
+    private static Repository findRepository() throws IOException {
+        Path currentDir = WorkingDirectory.get();
+
+        // Walk up the directory tree to find .cobra directory
+        while (currentDir != null) {
+            if (Repository.exists(currentDir.toString())) {
+                return RepositoryPool.open(currentDir);
+            }
+            currentDir = currentDir.getParent();
+        }
+
+        throw new IOException("Not a cobra repository (or any of the parent directories)");
+    }
+}
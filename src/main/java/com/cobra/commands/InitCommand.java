@@ -1,12 +1,19 @@
 package com.cobra.commands;
 
 import com.cobra.core.Repository;
+import com.cobra.utils.HashAlgorithm;
+import com.cobra.utils.WorkingDirectory;
 import java.io.IOException;
 
 public class InitCommand {
     
     public static void run(String path) throws IOException {
-        Repository.init(path);
-        System.out.println("Initialized empty Jobra repository in " + path);
+        run(path, HashAlgorithm.SHA256);
+    }
+    
+    public static void run(String path, HashAlgorithm hashAlgorithm) throws IOException {
+        Repository.init(WorkingDirectory.resolve(path).toString(), hashAlgorithm);
+        System.out.println("Initialized empty Jobra repository in " + path
+            + " (" + hashAlgorithm.getName() + ")");
     }
 } 
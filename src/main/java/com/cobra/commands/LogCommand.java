@@ -1,29 +1,36 @@
 package com.cobra.commands;
 
+import com.cobra.core.BloomFilter;
+import com.cobra.core.Commit;
+import com.cobra.core.CommitGraph;
 import com.cobra.core.Repository;
-import com.cobra.core.GitObject;
+import com.cobra.core.RepositoryPool;
+import com.cobra.core.Tree;
+import com.cobra.utils.WorkingDirectory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Objects;
 
 public class LogCommand {
     
-    private static final Pattern COMMIT_PATTERN = Pattern.compile(
-        "tree ([a-f0-9]+)\\s*\\n" +
-        "(?:parent ([a-f0-9]+)\\s*\\n)?" +
-        "author .*\\s*\\n" +
-        "committer .*\\s*\\n\\s*\\n" +
-        "(.+)", 
-        Pattern.DOTALL
-    );
+    private static final DateTimeFormatter DATE_FORMAT =
+        DateTimeFormatter.ofPattern("EEE MMM d HH:mm:ss yyyy xx", Locale.ROOT);
     
     public static void run() throws IOException {
+        run(null);
+    }
+    
+    public static void run(String path) throws IOException {
         // Find repository
-        Repository repo = findRepository();
-        
+        run(findRepository(), path);
+    }
+    
+    public static void run(Repository repo, String path) throws IOException {
         // Get current HEAD
         String currentHash = repo.getRefStore().getHead();
         
@@ -32,49 +39,99 @@ public class LogCommand {
             return;
         }
         
-        // Walk through commit history
-        String commitHash = currentHash;
-        while (commitHash != null && !commitHash.isEmpty()) {
-            printCommit(repo, commitHash);
-            
-            // Get parent commit
-            GitObject commitObj = repo.readObject(commitHash);
-            Matcher matcher = COMMIT_PATTERN.matcher(commitObj.getContent());
-            if (matcher.matches()) {
-                commitHash = matcher.group(2); // parent hash
-            } else {
-                commitHash = null;
+        String limit = path != null ? normalizePath(repo, path) : null;
+        int[] key = limit != null && !limit.isEmpty() ? BloomFilter.keyFor(limit) : null;
+        
+        // Walk through commit history using the commit-graph, newest first across all parents
+        CommitGraph graph = repo.getCommitGraph(Collections.singletonList(currentHash));
+        CommitGraph.Walk walk = graph.walk(graph.findPosition(currentHash));
+        for (int position = walk.next(); position >= 0; position = walk.next()) {
+            if (key != null && !touchesPath(repo, graph, position, limit, key)) {
+                continue;
             }
+            printCommit(repo, graph, position);
         }
     }
     
-    private static void printCommit(Repository repo, String commitHash) throws IOException {
-        GitObject commitObj = repo.readObject(commitHash);
-        Matcher matcher = COMMIT_PATTERN.matcher(commitObj.getContent());
+    private static boolean touchesPath(Repository repo, CommitGraph graph, int position,
+                                       String path, int[] key) throws IOException {
+        // A Bloom filter miss proves the path is unchanged, so the trees are never read
+        BloomFilter filter = graph.getBloomFilter(position);
+        if (filter != null && !filter.mightContain(key)) {
+            return false;
+        }
         
-        if (matcher.matches()) {
-            String treeHash = matcher.group(1);
-            String parentHash = matcher.group(2);
-            String message = matcher.group(3).trim();
-            
-            System.out.println("commit " + commitHash);
-            System.out.println("tree " + treeHash);
-            if (parentHash != null) {
-                System.out.println("parent " + parentHash);
+        // Possible hit (or no filter): compare the path against the first parent
+        int[] parents = graph.getParents(position);
+        String current = findEntry(repo, graph.getTreeHash(position), path);
+        String previous = parents.length > 0 ? findEntry(repo, graph.getTreeHash(parents[0]), path) : null;
+        return !Objects.equals(current, previous);
+    }
+    
+    private static String findEntry(Repository repo, String treeHash, String path) throws IOException {
+        // Returns "<mode> <hash>" of the entry at path, or null if it does not exist
+        String[] parts = path.split("/");
+        String hash = treeHash;
+        for (int i = 0; i < parts.length; i++) {
+            Tree.TreeParser parser = new Tree.TreeParser(repo.readObject(hash));
+            byte[] name = parts[i].getBytes(StandardCharsets.UTF_8);
+            String found = null;
+            while (parser.next()) {
+                if (parser.nameEquals(name)) {
+                    if (i == parts.length - 1) {
+                        return parser.getMode() + " " + parser.getHash();
+                    }
+                    if (parser.isTree()) {
+                        found = parser.getHash();
+                    }
+                    break;
+                }
+            }
+            if (found == null) {
+                return null;
             }
-            System.out.println();
-            System.out.println("    " + message);
-            System.out.println();
+            hash = found;
+        }
+        return null;
+    }
+    
+    private static String normalizePath(Repository repo, String path) {
+        // Pathspecs are relative to the working directory, trees to the repository root
+        Path root = repo.getRootPath().toAbsolutePath().normalize();
+        Path absolute = WorkingDirectory.resolve(path);
+        return root.relativize(absolute).toString().replace('\\', '/');
+    }
+    
+    private static void printCommit(Repository repo, CommitGraph graph, int position) throws IOException {
+        String commitHash = graph.getHash(position);
+        
+        System.out.println("commit " + commitHash);
+        System.out.println("tree " + graph.getTreeHash(position));
+        for (int parent : graph.getParents(position)) {
+            System.out.println("parent " + graph.getHash(parent));
+        }
+        
+        // Only the author and message have to come from the object, the rest is in the graph
+        Commit commit = Commit.parse(repo.readObject(commitHash));
+        Commit.PersonIdent author = commit.getAuthor();
+        if (author != null) {
+            System.out.println("Author: " + author.getName() + " <" + author.getEmail() + ">");
+            System.out.println("Date:   " + DATE_FORMAT.format(author.getDateTime()));
+        }
+        System.out.println();
+        for (String line : commit.getMessage().trim().split("\n")) {
+            System.out.println("    " + line);
         }
+        System.out.println();
     }
     
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
@@ -0,0 +1,39 @@
+package com.cobra.commands;
+
+import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
+import com.cobra.utils.WorkingDirectory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class RepackCommand {
+    
+    public static void run() throws IOException {
+        // Find repository
+        Repository repo = findRepository();
+        
+        Repository.PackStats stats = repo.repack();
+        if (stats.getObjectCount() == 0) {
+            System.out.println("Nothing to pack");
+            return;
+        }
+        
+        System.out.println("Packed " + stats.getObjectCount() + " objects (" 
+            + stats.getDeltaCount() + " deltas) into " + stats.getIndexPath().getFileName());
+    }
+    
+    private static Repository findRepository() throws IOException {
+        Path currentDir = WorkingDirectory.get();
+        
+        // Walk up the directory tree to find .cobra directory
+        while (currentDir != null) {
+            if (Repository.exists(currentDir.toString())) {
+                return RepositoryPool.open(currentDir);
+            }
+            currentDir = currentDir.getParent();
+        }
+        
+        throw new IOException("Not a cobra repository (or any of the parent directories)");
+    }
+}
@@ -1,12 +1,22 @@
 package com.cobra.commands;
 
+import com.cobra.core.Commit;
+import com.cobra.core.Index;
 import com.cobra.core.Repository;
+import com.cobra.core.RepositoryPool;
 import com.cobra.core.IndexEntry;
+import com.cobra.core.IndexTransaction;
+import com.cobra.core.LineDiff;
+import com.cobra.core.ObjectId;
+import com.cobra.core.TreeDiff;
+import com.cobra.core.UnifiedDiffFormatter;
+import com.cobra.utils.WorkingDirectory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,6 +40,9 @@ public class StashCommand {
         stash.setMessage(message != null ? message : "WIP on " + repo.getRefStore().getCurrentBranch());
         stash.setEntries(entries);
         stash.setBranch(repo.getRefStore().getCurrentBranch());
+        // An unborn branch has an empty head; record it as no base commit
+        String head = repo.getRefStore().getHead();
+        stash.setHead(head != null && !head.isEmpty() ? head : null);
         
         // Save stash
         List<StashEntry> stashes = loadStashes(repo);
@@ -66,15 +79,52 @@ public class StashCommand {
             throw new IOException("Stash not found: " + stashRef);
         }
         
-        System.out.println("diff --git a/stash b/stash");
-        System.out.println("index " + stash.getEntries().size() + " files");
-        System.out.println("--- a/stash");
-        System.out.println("+++ b/stash");
-        System.out.println("@@ -0,0 +1," + stash.getEntries().size() + " @@");
-        
-        for (IndexEntry entry : stash.getEntries()) {
-            System.out.println("+" + entry.getPath());
+        // Patches from the commit the stash was made on to the stashed index, one file at a time
+        OutputStream out = new BufferedOutputStream(System.out);
+        UnifiedDiffFormatter formatter = new UnifiedDiffFormatter(repo, out, LineDiff.Algorithm.HISTOGRAM);
+        for (TreeDiff.Change change : diffAgainstBase(repo, stash)) {
+            formatter.format(change);
         }
+        out.flush();
+    }
+    
+    private static List<TreeDiff.Change> diffAgainstBase(Repository repo, StashEntry stash) throws IOException {
+        // Stashes written before the base commit was recorded are compared with the current HEAD
+        String head = stash.getHead() != null ? stash.getHead() : repo.getRefStore().getHead();
+        List<TreeDiff.Change> base = head == null || head.isEmpty() ? new ArrayList<>()
+            : new TreeDiff(repo).diff(null, ObjectId.fromHex(Commit.parse(repo.readObject(head)).getTreeHash()));
+        
+        // Both lists are in path order, the base as additions to an empty tree
+        List<TreeDiff.Change> changes = new ArrayList<>();
+        List<IndexEntry> entries = stash.getEntries();
+        int i = 0;
+        int j = 0;
+        while (i < base.size() || j < entries.size()) {
+            TreeDiff.Change before = i < base.size() ? base.get(i) : null;
+            IndexEntry after = j < entries.size() ? entries.get(j) : null;
+            int cmp = before == null ? 1 : after == null ? -1 : Index.comparePaths(before.getPath(), after.getPath());
+            if (cmp < 0) {
+                changes.add(new TreeDiff.Change(TreeDiff.ChangeType.DELETED, before.getPath(),
+                    before.getNewMode(), before.getNewId(), 0, null));
+                i++;
+            } else if (cmp > 0) {
+                changes.add(new TreeDiff.Change(TreeDiff.ChangeType.ADDED, after.getPath(),
+                    0, null, Integer.parseInt(after.getMode(), 8), after.getId()));
+                j++;
+            } else {
+                int mode = Integer.parseInt(after.getMode(), 8);
+                if (!before.getNewId().equals(after.getId())) {
+                    changes.add(new TreeDiff.Change(TreeDiff.ChangeType.MODIFIED, after.getPath(),
+                        before.getNewMode(), before.getNewId(), mode, after.getId()));
+                } else if (before.getNewMode() != mode) {
+                    changes.add(new TreeDiff.Change(TreeDiff.ChangeType.MODE_CHANGED, after.getPath(),
+                        before.getNewMode(), before.getNewId(), mode, after.getId()));
+                }
+                i++;
+                j++;
+            }
+        }
+        return changes;
     }
     
     public static void apply(String stashRef) throws IOException {
@@ -85,9 +135,12 @@ public class StashCommand {
             throw new IOException("Stash not found: " + stashRef);
         }
         
-        // Apply stash entries to index
-        for (IndexEntry entry : stash.getEntries()) {
-            repo.addToIndex(entry);
+        // Apply stash entries to index, writing it once
+        try (IndexTransaction transaction = repo.beginIndexTransaction()) {
+            for (IndexEntry entry : stash.getEntries()) {
+                transaction.stage(entry);
+            }
+            transaction.commit();
         }
         
         System.out.println("Applied stash " + stashRef);
@@ -147,12 +200,12 @@ public class StashCommand {
     }
     
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
@@ -164,6 +217,8 @@ public class StashCommand {
         private String message;
         private List<IndexEntry> entries;
         private String branch;
+        // Commit HEAD pointed to when the stash was made
+        private String head;
         
         // Getters and setters for Jackson
         public String getMessage() { return message; }
@@ -174,5 +229,8 @@ public class StashCommand {
         
         public String getBranch() { return branch; }
         public void setBranch(String branch) { this.branch = branch; }
+        
+        public String getHead() { return head; }
+        public void setHead(String head) { this.head = head; }
     }
 } 
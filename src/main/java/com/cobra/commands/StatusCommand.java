@@ -1,76 +1,136 @@
 package com.cobra.commands;
 
 import com.cobra.core.Repository;
-import com.cobra.core.IndexEntry;
-import com.cobra.utils.FileUtils;
+import com.cobra.core.RepositoryPool;
+import com.cobra.core.StatusEngine;
+import com.cobra.utils.WorkingDirectory;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class StatusCommand {
     
     public static void run() throws IOException {
+        run(false);
+    }
+    
+    public static void run(boolean porcelain) throws IOException {
         // Find repository
         Repository repo = findRepository();
-        
+        if (porcelain) {
+            runPorcelain(repo);
+        } else {
+            run(repo);
+        }
+    }
+    
+    public static void runPorcelain(Repository repo) throws IOException {
+        // One "XY path" line per change, written as soon as its directory is done; untracked files come last
+        StringBuilder buffer = new StringBuilder();
+        new StatusEngine(repo).run(new StatusEngine.Listener() {
+            @Override
+            public void onChange(String path, char index, char worktree) {
+                buffer.append(index).append(worktree).append(' ').append(path).append('\n');
+            }
+            
+            @Override
+            public void flush() {
+                System.out.print(buffer);
+                System.out.flush();
+                buffer.setLength(0);
+            }
+        });
+    }
+    
+    public static void run(Repository repo) throws IOException {
         // Get current branch
         String currentBranch = repo.getRefStore().getCurrentBranch();
         if (currentBranch == null) {
             currentBranch = "HEAD";
         }
         
+        // Staged and unstaged changes of the same file are listed in both sections
+        List<String> staged = new ArrayList<>();
+        List<String> unstaged = new ArrayList<>();
+        List<String> untrackedFiles = new ArrayList<>();
+        new StatusEngine(repo).run((path, index, worktree) -> {
+            if (index == StatusEngine.UNTRACKED) {
+                untrackedFiles.add(path);
+                return;
+            }
+            if (index != StatusEngine.UNMODIFIED) {
+                staged.add(describe(index, path));
+            }
+            if (worktree != StatusEngine.UNMODIFIED) {
+                unstaged.add(describe(worktree, path));
+            }
+        });
+        
         System.out.println("On branch " + currentBranch);
         System.out.println();
         
-        // Get staged files
-        List<IndexEntry> stagedFiles = repo.getIndex().getEntries();
-        if (!stagedFiles.isEmpty()) {
+        if (!staged.isEmpty()) {
             System.out.println("Changes to be committed:");
             System.out.println("  (use \"cobra reset HEAD <file>\" to unstage)");
             System.out.println();
             
-            for (IndexEntry entry : stagedFiles) {
-                System.out.println("\tmodified: " + entry.getPath());
+            for (String line : staged) {
+                System.out.println(line);
             }
             System.out.println();
         }
         
-        // Get unstaged files (simplified - just check if files exist and are not in index)
-        List<Path> unstagedFiles = FileUtils.walkFiles(repo.getRootPath())
-            .filter(path -> !repo.getIndex().hasEntry(repo.getRootPath().relativize(path).toString()))
-            .collect(Collectors.toList());
+        if (!unstaged.isEmpty()) {
+            System.out.println("Changes not staged for commit:");
+            System.out.println("  (use \"cobra add <file>\" to update what will be committed)");
+            System.out.println();
+            
+            for (String line : unstaged) {
+                System.out.println(line);
+            }
+            System.out.println();
+        }
         
-        if (!unstagedFiles.isEmpty()) {
+        if (!untrackedFiles.isEmpty()) {
             System.out.println("Untracked files:");
             System.out.println("  (use \"cobra add <file>\" to include in what will be committed)");
             System.out.println();
             
-            for (Path file : unstagedFiles) {
-                String relativePath = repo.getRootPath().relativize(file).toString();
-                System.out.println("\t" + relativePath);
+            for (String path : untrackedFiles) {
+                System.out.println("\t" + path);
             }
             System.out.println();
         }
         
-        if (stagedFiles.isEmpty() && unstagedFiles.isEmpty()) {
+        if (staged.isEmpty() && unstaged.isEmpty() && untrackedFiles.isEmpty()) {
             System.out.println("nothing to commit, working tree clean");
         }
     }
     
+    private static String describe(char change, String path) {
+        switch (change) {
+            case StatusEngine.ADDED:
+                return "\tnew file: " + path;
+            case StatusEngine.DELETED:
+                return "\tdeleted:  " + path;
+            default:
+                return "\tmodified: " + path;
+        }
+    }
+    
     private static Repository findRepository() throws IOException {
-        Path currentDir = Paths.get(".").toAbsolutePath();
+        Path currentDir = WorkingDirectory.get();
         
         // Walk up the directory tree to find .cobra directory
         while (currentDir != null) {
             if (Repository.exists(currentDir.toString())) {
-                return Repository.open(currentDir.toString());
+                return RepositoryPool.open(currentDir);
             }
             currentDir = currentDir.getParent();
         }
         
         throw new IOException("Not a cobra repository (or any of the parent directories)");
     }
-} 
\ No newline at end of file
+}
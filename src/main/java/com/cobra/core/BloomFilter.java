@@ -0,0 +1,124 @@
+package com.cobra.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+public class BloomFilter {
+    // Changed-path filter of a commit against its first parent. A miss means the
+    // path was definitely not touched; a hit still has to be confirmed on the trees.
+    public static final int BITS_PER_ENTRY = 10;
+    public static final int NUM_HASHES = 7;
+    // Commits touching more paths get a filter with every bit set
+    public static final int MAX_CHANGED_PATHS = 512;
+    private static final int SEED_1 = 0x293ae76f;
+    private static final int SEED_2 = 0x7e646e2c;
+
+    private final ByteBuffer data;
+    private final int offset;
+    private final int length;
+
+    BloomFilter(ByteBuffer data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static BloomFilter create(Collection<String> paths) {
+        if (paths.size() > MAX_CHANGED_PATHS) {
+            return new BloomFilter(ByteBuffer.wrap(new byte[] {(byte) 0xff}), 0, 1);
+        }
+        int length = Math.max(1, (paths.size() * BITS_PER_ENTRY + 7) / 8);
+        byte[] bits = new byte[length];
+        for (String path : paths) {
+            for (int hash : keyFor(path)) {
+                int bit = (int) (Integer.toUnsignedLong(hash) % (length * 8L));
+                bits[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return new BloomFilter(ByteBuffer.wrap(bits), 0, length);
+    }
+
+    public static int[] keyFor(String path) {
+        // Double hashing over two murmur3 seeds, computed once per path and reused for every commit
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        int hash1 = murmur3(SEED_1, bytes);
+        int hash2 = murmur3(SEED_2, bytes);
+        int[] key = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            key[i] = hash1 + i * hash2;
+        }
+        return key;
+    }
+
+    public boolean mightContain(int[] key) {
+        long bits = length * 8L;
+        for (int hash : key) {
+            int bit = (int) (Integer.toUnsignedLong(hash) % bits);
+            if ((data.get(offset + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public byte[] getBytes() {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+        return bytes;
+    }
+
+    static int murmur3(int seed, byte[] data) {
+        final int c1 = 0xcc9e2d51;
+        final int c2 = 0x1b873593;
+        int hash = seed;
+        int blocks = data.length / 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int k = (data[i * 4] & 0xff)
+                | (data[i * 4 + 1] & 0xff) << 8
+                | (data[i * 4 + 2] & 0xff) << 16
+                | (data[i * 4 + 3] & 0xff) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            hash ^= k;
+            hash = Integer.rotateLeft(hash, 13);
+            hash = hash * 5 + 0xe6546b64;
+        }
+
+        int tail = blocks * 4;
+        int k = 0;
+        switch (data.length & 3) {
+            case 3:
+                k ^= (data[tail + 2] & 0xff) << 16;
+                // fall through
+            case 2:
+                k ^= (data[tail + 1] & 0xff) << 8;
+                // fall through
+            case 1:
+                k ^= data[tail] & 0xff;
+                k *= c1;
+                k = Integer.rotateLeft(k, 15);
+                k *= c2;
+                hash ^= k;
+                break;
+            default:
+                break;
+        }
+
+        hash ^= data.length;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
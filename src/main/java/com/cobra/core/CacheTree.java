@@ -0,0 +1,87 @@
+package com.cobra.core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class CacheTree {
+    // Remembers the tree hash of every directory whose index entries are unchanged
+    // since the last tree write. Keys are directory paths, "" is the root.
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    public synchronized Node get(String dir) {
+        return nodes.get(dir);
+    }
+
+    public synchronized void put(String dir, ObjectId hash, int entryCount) {
+        nodes.put(dir, new Node(hash, entryCount));
+    }
+
+    public synchronized void invalidate(String path) {
+        // Only the ancestors of a changed path need rehashing
+        int slash = path.lastIndexOf('/');
+        while (slash > 0) {
+            path = path.substring(0, slash);
+            nodes.remove(path);
+            slash = path.lastIndexOf('/');
+        }
+        nodes.remove("");
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(nodes.size());
+        for (Map.Entry<String, Node> node : nodes.entrySet()) {
+            byte[] dir = node.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(dir.length);
+            out.write(dir);
+            out.writeInt(node.getValue().entryCount);
+            out.write(node.getValue().id.getRaw());
+        }
+    }
+
+    public static CacheTree read(ByteBuffer data) {
+        CacheTree cacheTree = new CacheTree();
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] dir = new byte[data.getShort() & 0xffff];
+            data.get(dir);
+            int entryCount = data.getInt();
+            byte[] hash = new byte[32];
+            data.get(hash);
+            cacheTree.nodes.put(new String(dir, StandardCharsets.UTF_8),
+                new Node(ObjectId.fromRaw(hash), entryCount));
+        }
+        return cacheTree;
+    }
+
+    public static class Node {
+        private final ObjectId id;
+        private final int entryCount;
+
+        Node(ObjectId id, int entryCount) {
+            this.id = id;
+            this.entryCount = entryCount;
+        }
+
+        public String getHash() {
+            return id.toHex();
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+    }
+}
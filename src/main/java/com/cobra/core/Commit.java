@@ -0,0 +1,333 @@
+package com.cobra.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+public class Commit {
+    // Headers are scanned line by line over the object's bytes on first access, and
+    // only offsets are kept; strings are created when a field is actually requested.
+    //
+    //   tree <hash>
+    //   parent <hash>          (zero or more)
+    //   author <name> <<email>> <epoch seconds> <+hhmm>
+    //   committer <name> <<email>> <epoch seconds> <+hhmm>
+    //   <other header> <value> (continuation lines start with a space)
+    //
+    //   <message>
+    private static final byte[] TREE = bytes("tree");
+    private static final byte[] PARENT = bytes("parent");
+    private static final byte[] AUTHOR = bytes("author");
+    private static final byte[] COMMITTER = bytes("committer");
+
+    private final byte[] data;
+    private final int offset;
+    private final int end;
+
+    private boolean scanned;
+    private int treeOffset = -1;
+    private int treeEnd;
+    private int[] parentOffsets = new int[2];
+    private int[] parentEnds = new int[2];
+    private int parentCount;
+    private int authorOffset = -1;
+    private int authorEnd;
+    private int committerOffset = -1;
+    private int committerEnd;
+    private int messageOffset;
+    private List<Header> extraHeaders;
+
+    private List<String> parents;
+    private PersonIdent author;
+    private PersonIdent committer;
+
+    public Commit(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.end = offset + length;
+    }
+
+    public static Commit parse(GitObject object) {
+        if (!"commit".equals(object.getType())) {
+            throw new IllegalArgumentException("Not a commit object: " + object.getType());
+        }
+        return new Commit(object.rawData(), object.rawOffset(), object.getSize());
+    }
+
+    public String getTreeHash() {
+        scan();
+        if (treeOffset < 0) {
+            throw new IllegalArgumentException("Corrupt commit: missing tree");
+        }
+        return ascii(treeOffset, treeEnd);
+    }
+
+    public int getParentCount() {
+        scan();
+        return parentCount;
+    }
+
+    public String getParent(int i) {
+        scan();
+        if (i < 0 || i >= parentCount) {
+            throw new IndexOutOfBoundsException("Parent " + i);
+        }
+        return ascii(parentOffsets[i], parentEnds[i]);
+    }
+
+    public List<String> getParents() {
+        scan();
+        if (parents == null) {
+            List<String> result = new ArrayList<>(parentCount);
+            for (int i = 0; i < parentCount; i++) {
+                result.add(ascii(parentOffsets[i], parentEnds[i]));
+            }
+            parents = Collections.unmodifiableList(result);
+        }
+        return parents;
+    }
+
+    public PersonIdent getAuthor() {
+        scan();
+        if (author == null && authorOffset >= 0) {
+            author = PersonIdent.parse(utf8(authorOffset, authorEnd));
+        }
+        return author;
+    }
+
+    public PersonIdent getCommitter() {
+        scan();
+        if (committer == null && committerOffset >= 0) {
+            committer = PersonIdent.parse(utf8(committerOffset, committerEnd));
+        }
+        return committer;
+    }
+
+    public List<Header> getExtraHeaders() {
+        scan();
+        return extraHeaders == null ? Collections.emptyList() : Collections.unmodifiableList(extraHeaders);
+    }
+
+    public String getHeader(String name) {
+        for (Header header : getExtraHeaders()) {
+            if (header.getName().equals(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    public String getMessage() {
+        scan();
+        return utf8(messageOffset, end);
+    }
+
+    public String getShortMessage() {
+        // First line of the message
+        scan();
+        int lineEnd = messageOffset;
+        while (lineEnd < end && data[lineEnd] != '\n') {
+            lineEnd++;
+        }
+        return utf8(messageOffset, lineEnd).trim();
+    }
+
+    private void scan() {
+        if (scanned) {
+            return;
+        }
+        int position = offset;
+        Header last = null;
+        while (position < end) {
+            int lineEnd = position;
+            while (lineEnd < end && data[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == position) {
+                // Blank line, the message follows
+                position = lineEnd + 1;
+                break;
+            }
+
+            if (data[position] == ' ' && last != null) {
+                last.value = last.value + "\n" + utf8(position + 1, lineEnd);
+            } else {
+                int space = position;
+                while (space < lineEnd && data[space] != ' ') {
+                    space++;
+                }
+                int valueStart = Math.min(space + 1, lineEnd);
+                last = null;
+                if (keyEquals(position, space, TREE) && treeOffset < 0) {
+                    treeOffset = valueStart;
+                    treeEnd = lineEnd;
+                } else if (keyEquals(position, space, PARENT)) {
+                    addParent(valueStart, lineEnd);
+                } else if (keyEquals(position, space, AUTHOR) && authorOffset < 0) {
+                    authorOffset = valueStart;
+                    authorEnd = lineEnd;
+                } else if (keyEquals(position, space, COMMITTER) && committerOffset < 0) {
+                    committerOffset = valueStart;
+                    committerEnd = lineEnd;
+                } else {
+                    if (extraHeaders == null) {
+                        extraHeaders = new ArrayList<>(2);
+                    }
+                    last = new Header(ascii(position, space), utf8(valueStart, lineEnd));
+                    extraHeaders.add(last);
+                }
+            }
+            position = lineEnd + 1;
+        }
+        messageOffset = Math.min(position, end);
+        scanned = true;
+    }
+
+    private void addParent(int start, int stop) {
+        if (parentCount == parentOffsets.length) {
+            parentOffsets = Arrays.copyOf(parentOffsets, parentCount * 2);
+            parentEnds = Arrays.copyOf(parentEnds, parentCount * 2);
+        }
+        parentOffsets[parentCount] = start;
+        parentEnds[parentCount] = stop;
+        parentCount++;
+    }
+
+    private boolean keyEquals(int start, int stop, byte[] key) {
+        if (stop - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (data[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String ascii(int start, int stop) {
+        return new String(data, start, stop - start, StandardCharsets.US_ASCII);
+    }
+
+    private String utf8(int start, int stop) {
+        return new String(data, start, stop - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static class Header {
+        private final String name;
+        private String value;
+
+        Header(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    public static class PersonIdent {
+        private static final DateTimeFormatter ZONE_FORMAT = DateTimeFormatter.ofPattern("xx");
+
+        private final String name;
+        private final String email;
+        private final long when;
+        private final ZoneOffset zone;
+
+        public PersonIdent(String name, String email, long when, ZoneOffset zone) {
+            this.name = name;
+            this.email = email;
+            this.when = when;
+            this.zone = zone;
+        }
+
+        public static PersonIdent now(String name, String email) {
+            ZonedDateTime now = ZonedDateTime.now();
+            return new PersonIdent(name, email, now.toEpochSecond(), now.getOffset());
+        }
+
+        public static PersonIdent parse(String value) {
+            int open = value.lastIndexOf('<');
+            int close = value.lastIndexOf('>');
+            if (open < 0 || close < open) {
+                return new PersonIdent(value.trim(), "", 0, ZoneOffset.UTC);
+            }
+            String name = value.substring(0, open).trim();
+            String email = value.substring(open + 1, close);
+            String date = value.substring(close + 1).trim();
+
+            // "<epoch seconds> <+hhmm>", or the ISO local timestamp older commits used
+            int space = date.indexOf(' ');
+            try {
+                long when = Long.parseLong(space < 0 ? date : date.substring(0, space));
+                ZoneOffset zone;
+                try {
+                    zone = space < 0 ? ZoneOffset.UTC : parseZone(date.substring(space + 1).trim());
+                } catch (DateTimeException e) {
+                    // Offsets beyond +-18:00 are rejected by ZoneOffset; keep the timestamp, in UTC
+                    zone = ZoneOffset.UTC;
+                }
+                return new PersonIdent(name, email, when, zone);
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime local = LocalDateTime.parse(date, DateTimeFormatter.ISO_LOCAL_DATE_TIME)
+                        .atZone(ZoneId.systemDefault());
+                    return new PersonIdent(name, email, local.toEpochSecond(), local.getOffset());
+                } catch (DateTimeException ignored) {
+                    return new PersonIdent(name, email, 0, ZoneOffset.UTC);
+                }
+            }
+        }
+
+        private static ZoneOffset parseZone(String zone) {
+            if (zone.length() != 5 || (zone.charAt(0) != '+' && zone.charAt(0) != '-')) {
+                return ZoneOffset.UTC;
+            }
+            // Malformed digits fall back to UTC like a malformed sign, so the timestamp is kept
+            for (int i = 1; i < 5; i++) {
+                if (zone.charAt(i) < '0' || zone.charAt(i) > '9') {
+                    return ZoneOffset.UTC;
+                }
+            }
+            int hours = Integer.parseInt(zone.substring(1, 3));
+            int minutes = Integer.parseInt(zone.substring(3, 5));
+            int sign = zone.charAt(0) == '-' ? -1 : 1;
+            return ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public long getWhen() {
+            return when;
+        }
+
+        public ZoneOffset getZone() {
+            return zone;
+        }
+
+        public ZonedDateTime getDateTime() {
+            return Instant.ofEpochSecond(when).atZone(zone);
+        }
+
+        @Override
+        public String toString() {
+            return name + " <" + email + "> " + when + " " + ZONE_FORMAT.format(zone);
+        }
+    }
+}
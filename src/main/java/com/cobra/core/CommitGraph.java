@@ -0,0 +1,377 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+public class CommitGraph {
+    // A graph is a chain of layer files, oldest first, listed in commit-graph-chain.
+    // Each layer covers the commits it adds and refers to parents by global position,
+    // where a layer's positions start after all commits of the layers below it.
+    //
+    // Layer layout:
+    //   "CGPH", int version, int commit count, int base count
+    //   int[256] fanout
+    //   count * 32-byte raw commit hashes, sorted
+    //   count * rows: 32-byte tree hash, int parent1, int parent2, int generation, long commit time
+    //   int extra edge count, extra edges (for commits with more than two parents)
+    //   count * int cumulative end offsets of the changed-path Bloom filters, then the filter bytes
+    //   32-byte checksum of everything above
+    // Version 1 layers have no Bloom filter section.
+    public static final int VERSION = 2;
+    public static final int NO_PARENT = 0x70000000;
+    public static final int EXTRA_EDGES = 0x80000000;
+    static final byte[] MAGIC = {'C', 'G', 'P', 'H'};
+    static final int HEADER_SIZE = 16;
+    static final int HASH_SIZE = 32;
+    static final int ROW_SIZE = HASH_SIZE + 4 + 4 + 4 + 8;
+
+    private final List<Layer> layers;
+    private final int size;
+
+    private CommitGraph(List<Layer> layers) {
+        this.layers = layers;
+        this.size = layers.isEmpty() ? 0 : layers.get(layers.size() - 1).baseCount + layers.get(layers.size() - 1).count;
+    }
+
+    public static Path getGraphDir(Path cobraDir) {
+        return cobraDir.resolve("objects").resolve("info").resolve("commit-graphs");
+    }
+
+    public static CommitGraph load(Path cobraDir) throws IOException {
+        Path graphDir = getGraphDir(cobraDir);
+        Path chain = graphDir.resolve("commit-graph-chain");
+        List<Layer> layers = new ArrayList<>();
+        if (Files.exists(chain)) {
+            for (String name : Files.readAllLines(chain)) {
+                if (name.trim().isEmpty()) {
+                    continue;
+                }
+                Layer layer = Layer.open(graphDir.resolve(name.trim()));
+                int expectedBase = layers.isEmpty() ? 0 : layers.get(layers.size() - 1).baseCount + layers.get(layers.size() - 1).count;
+                if (layer.baseCount != expectedBase) {
+                    throw new IOException("Commit graph chain is inconsistent at " + name);
+                }
+                layers.add(layer);
+            }
+        }
+        return new CommitGraph(layers);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    List<Layer> getLayers() {
+        return layers;
+    }
+
+    public int findPosition(String hash) {
+        if (hash == null || hash.length() != HASH_SIZE * 2) {
+            return -1;
+        }
+        return findPosition(HashUtils.hexToBytes(hash));
+    }
+
+    public int findPosition(byte[] hash) {
+        // Newer layers are smaller and more likely to hold recent commits
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            int local = layers.get(i).find(hash);
+            if (local >= 0) {
+                return layers.get(i).baseCount + local;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(String hash) {
+        return findPosition(hash) >= 0;
+    }
+
+    public String getHash(int position) {
+        Layer layer = layerFor(position);
+        return HashUtils.bytesToHex(layer.hash(position - layer.baseCount));
+    }
+
+    public ObjectId getId(int position) {
+        Layer layer = layerFor(position);
+        return ObjectId.fromRaw(layer.hash(position - layer.baseCount));
+    }
+
+    public int findPosition(ObjectId id) {
+        return findPosition(id.getRaw());
+    }
+
+    public String getTreeHash(int position) {
+        Layer layer = layerFor(position);
+        return HashUtils.bytesToHex(layer.tree(position - layer.baseCount));
+    }
+
+    public int[] getParents(int position) {
+        Layer layer = layerFor(position);
+        return layer.parents(position - layer.baseCount);
+    }
+
+    public int getGeneration(int position) {
+        Layer layer = layerFor(position);
+        return layer.generation(position - layer.baseCount);
+    }
+
+    public long getCommitTime(int position) {
+        Layer layer = layerFor(position);
+        return layer.commitTime(position - layer.baseCount);
+    }
+
+    public BloomFilter getBloomFilter(int position) {
+        // Null when the commit's layer predates changed-path filters
+        Layer layer = layerFor(position);
+        return layer.bloomFilter(position - layer.baseCount);
+    }
+
+    private Layer layerFor(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Commit graph position " + position);
+        }
+        int low = 0;
+        int high = layers.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (layers.get(mid).baseCount <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return layers.get(low);
+    }
+
+    public boolean isAncestor(int ancestor, int descendant) {
+        // Generation numbers let us stop descending as soon as we are below the ancestor
+        int minGeneration = getGeneration(ancestor);
+        BitSet seen = new BitSet(size);
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(descendant);
+        while (!stack.isEmpty()) {
+            int position = stack.pop();
+            if (position == ancestor) {
+                return true;
+            }
+            if (seen.get(position) || getGeneration(position) <= minGeneration) {
+                continue;
+            }
+            seen.set(position);
+            for (int parent : getParents(position)) {
+                stack.push(parent);
+            }
+        }
+        return false;
+    }
+
+    public int mergeBase(int a, int b) {
+        // Paint ancestors of both sides in decreasing generation order; the first
+        // commit reached from both sides is a best common ancestor
+        byte[] flags = new byte[size];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            Comparator.comparingInt(this::getGeneration).reversed());
+        flags[a] |= 1;
+        flags[b] |= 2;
+        queue.add(a);
+        if (a != b) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int position = queue.poll();
+            if (flags[position] == 3) {
+                return position;
+            }
+            for (int parent : getParents(position)) {
+                if ((flags[parent] | flags[position]) != flags[parent]) {
+                    boolean queued = flags[parent] != 0;
+                    flags[parent] |= flags[position];
+                    if (queued) {
+                        queue.remove(parent);
+                    }
+                    queue.add(parent);
+                }
+            }
+        }
+        return -1;
+    }
+
+    public Walk walk(int... starts) {
+        return new Walk(starts);
+    }
+
+    public class Walk {
+        // Yields commits newest first by commit time, each exactly once, following every parent
+        private final PriorityQueue<Integer> queue = new PriorityQueue<>(
+            Comparator.comparingLong(CommitGraph.this::getCommitTime).reversed()
+                .thenComparing(Comparator.comparingInt(CommitGraph.this::getGeneration).reversed()));
+        private final BitSet seen = new BitSet(size);
+
+        Walk(int[] starts) {
+            for (int start : starts) {
+                if (start >= 0 && !seen.get(start)) {
+                    seen.set(start);
+                    queue.add(start);
+                }
+            }
+        }
+
+        public int next() {
+            Integer position = queue.poll();
+            if (position == null) {
+                return -1;
+            }
+            for (int parent : getParents(position)) {
+                if (!seen.get(parent)) {
+                    seen.set(parent);
+                    queue.add(parent);
+                }
+            }
+            return position;
+        }
+    }
+
+    static class Layer {
+        final Path path;
+        final ByteBuffer buffer;
+        final int count;
+        final int baseCount;
+        final int rowsOffset;
+        final int edgesOffset;
+        final int bloomIndexOffset;
+        final int bloomDataOffset;
+
+        private Layer(Path path, ByteBuffer buffer) throws IOException {
+            this.path = path;
+            this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a commit graph: " + path);
+                }
+            }
+            int version = buffer.getInt(4);
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported commit graph version in " + path);
+            }
+            this.count = buffer.getInt(8);
+            this.baseCount = buffer.getInt(12);
+            this.rowsOffset = HEADER_SIZE + 256 * 4 + count * HASH_SIZE;
+            this.edgesOffset = rowsOffset + count * ROW_SIZE;
+            if (version >= 2) {
+                this.bloomIndexOffset = edgesOffset + 4 + buffer.getInt(edgesOffset) * 4;
+                this.bloomDataOffset = bloomIndexOffset + count * 4;
+            } else {
+                this.bloomIndexOffset = -1;
+                this.bloomDataOffset = -1;
+            }
+        }
+
+        static Layer open(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new Layer(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        int find(byte[] hash) {
+            int first = hash[0] & 0xff;
+            int low = first == 0 ? 0 : buffer.getInt(HEADER_SIZE + (first - 1) * 4);
+            int high = buffer.getInt(HEADER_SIZE + first * 4) - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareAt(HEADER_SIZE + 256 * 4 + mid * HASH_SIZE, hash);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        byte[] hash(int local) {
+            return bytesAt(HEADER_SIZE + 256 * 4 + local * HASH_SIZE);
+        }
+
+        byte[] tree(int local) {
+            return bytesAt(rowsOffset + local * ROW_SIZE);
+        }
+
+        int[] parents(int local) {
+            int row = rowsOffset + local * ROW_SIZE + HASH_SIZE;
+            int first = buffer.getInt(row);
+            int second = buffer.getInt(row + 4);
+            if (first == NO_PARENT) {
+                return new int[0];
+            }
+            if (second == NO_PARENT) {
+                return new int[] {first};
+            }
+            if ((second & EXTRA_EDGES) == 0) {
+                return new int[] {first, second};
+            }
+
+            // Octopus merges keep the remaining parents in the extra edge list
+            List<Integer> parents = new ArrayList<>();
+            parents.add(first);
+            int edge = edgesOffset + 4 + (second & ~EXTRA_EDGES) * 4;
+            while (true) {
+                int value = buffer.getInt(edge);
+                parents.add(value & ~EXTRA_EDGES);
+                if ((value & EXTRA_EDGES) != 0) {
+                    break;
+                }
+                edge += 4;
+            }
+            int[] result = new int[parents.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = parents.get(i);
+            }
+            return result;
+        }
+
+        int generation(int local) {
+            return buffer.getInt(rowsOffset + local * ROW_SIZE + HASH_SIZE + 8);
+        }
+
+        long commitTime(int local) {
+            return buffer.getLong(rowsOffset + local * ROW_SIZE + HASH_SIZE + 12);
+        }
+
+        BloomFilter bloomFilter(int local) {
+            if (bloomIndexOffset < 0) {
+                return null;
+            }
+            int start = local == 0 ? 0 : buffer.getInt(bloomIndexOffset + (local - 1) * 4);
+            int end = buffer.getInt(bloomIndexOffset + local * 4);
+            return new BloomFilter(buffer, bloomDataOffset + start, end - start);
+        }
+
+        private byte[] bytesAt(int offset) {
+            byte[] result = new byte[HASH_SIZE];
+            for (int i = 0; i < HASH_SIZE; i++) {
+                result[i] = buffer.get(offset + i);
+            }
+            return result;
+        }
+
+        private int compareAt(int offset, byte[] hash) {
+            for (int i = 0; i < HASH_SIZE; i++) {
+                int a = buffer.get(offset + i) & 0xff;
+                int b = hash[i] & 0xff;
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+public class CommitGraphWriter {
+    static final String CHAIN_FILE = "commit-graph-chain";
+    // Layers are merged downwards while the new layer holds at least half as many
+    // commits as the one below, which keeps the chain logarithmic in history size
+    private static final int SIZE_MULTIPLE = 2;
+
+    private final Repository repo;
+    private final Path graphDir;
+    // Commits the caller already knows about, so they need not be read back
+    private final Map<String, CommitRecord> known = new HashMap<>();
+
+    public CommitGraphWriter(Repository repo) {
+        this.repo = repo;
+        this.graphDir = CommitGraph.getGraphDir(repo.getJobraDir());
+    }
+
+    public void add(String hash, String treeHash, List<String> parents, long commitTime) {
+        known.put(hash, new CommitRecord(hash, treeHash, parents, commitTime));
+    }
+
+    public CommitGraph update(Collection<String> tips) throws IOException {
+        CommitGraph graph = CommitGraph.load(repo.getJobraDir());
+        Map<String, CommitRecord> batch = collectMissing(graph, tips);
+        if (batch.isEmpty()) {
+            return graph;
+        }
+        computeGenerations(graph, batch);
+
+        // Fold the top layers into the new one when they are not much larger
+        List<CommitGraph.Layer> layers = new ArrayList<>(graph.getLayers());
+        List<CommitGraph.Layer> replaced = new ArrayList<>();
+        while (!layers.isEmpty()
+                && batch.size() * SIZE_MULTIPLE >= layers.get(layers.size() - 1).count) {
+            CommitGraph.Layer top = layers.remove(layers.size() - 1);
+            for (int i = 0; i < top.count; i++) {
+                CommitRecord record = readRecord(graph, top.baseCount + i);
+                batch.put(record.hash, record);
+            }
+            replaced.add(top);
+        }
+        computeBloomFilters(graph, batch);
+
+        int baseCount = layers.isEmpty() ? 0 : layers.get(layers.size() - 1).baseCount + layers.get(layers.size() - 1).count;
+        Files.createDirectories(graphDir);
+        String layerName = writeLayer(graph, batch, baseCount);
+
+        List<String> chain = new ArrayList<>();
+        for (CommitGraph.Layer layer : layers) {
+            chain.add(layer.path.getFileName().toString());
+        }
+        chain.add(layerName);
+        writeChain(chain);
+
+        for (CommitGraph.Layer layer : replaced) {
+            if (!layer.path.getFileName().toString().equals(layerName)) {
+                Files.deleteIfExists(layer.path);
+            }
+        }
+        return CommitGraph.load(repo.getJobraDir());
+    }
+
+    public CommitGraph rewrite(Collection<String> tips) throws IOException {
+        // Drop the existing chain and build a single layer from scratch
+        CommitGraph old = CommitGraph.load(repo.getJobraDir());
+        Files.deleteIfExists(graphDir.resolve(CHAIN_FILE));
+        CommitGraph graph = update(tips);
+        Set<Path> kept = new HashSet<>();
+        for (CommitGraph.Layer layer : graph.getLayers()) {
+            kept.add(layer.path);
+        }
+        for (CommitGraph.Layer layer : old.getLayers()) {
+            if (!kept.contains(layer.path)) {
+                Files.deleteIfExists(layer.path);
+            }
+        }
+        return graph;
+    }
+
+    private Map<String, CommitRecord> collectMissing(CommitGraph graph, Collection<String> tips) throws IOException {
+        // Everything reachable from the tips that the graph does not cover yet
+        Map<String, CommitRecord> batch = new HashMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String tip : tips) {
+            if (tip != null && !tip.isEmpty()) {
+                pending.push(tip);
+            }
+        }
+        while (!pending.isEmpty()) {
+            String hash = pending.pop();
+            if (batch.containsKey(hash) || graph.findPosition(hash) >= 0) {
+                continue;
+            }
+            CommitRecord record = known.get(hash);
+            if (record == null) {
+                record = parseCommit(hash);
+            }
+            batch.put(hash, record);
+            for (String parent : record.parents) {
+                pending.push(parent);
+            }
+        }
+        return batch;
+    }
+
+    private static void computeGenerations(CommitGraph graph, Map<String, CommitRecord> batch) {
+        // A commit's generation is one more than the highest generation of its parents
+        Deque<CommitRecord> stack = new ArrayDeque<>();
+        for (CommitRecord start : batch.values()) {
+            if (start.generation != 0) {
+                continue;
+            }
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                CommitRecord record = stack.peek();
+                int max = 0;
+                boolean ready = true;
+                for (String parent : record.parents) {
+                    CommitRecord pending = batch.get(parent);
+                    int generation = pending != null ? pending.generation
+                        : graph.getGeneration(graph.findPosition(parent));
+                    if (generation == 0) {
+                        stack.push(pending);
+                        ready = false;
+                    }
+                    max = Math.max(max, generation);
+                }
+                if (ready) {
+                    record.generation = max + 1;
+                    stack.pop();
+                }
+            }
+        }
+    }
+
+    private void computeBloomFilters(CommitGraph graph, Map<String, CommitRecord> batch) throws IOException {
+        // Filters are computed once, when a commit first enters the graph, by diffing
+        // its tree against its first parent's tree
+        TreeDiff diff = new TreeDiff(repo);
+        for (CommitRecord record : batch.values()) {
+            if (record.filter != null) {
+                continue;
+            }
+            String parentTree = null;
+            if (!record.parents.isEmpty()) {
+                String parent = record.parents.get(0);
+                CommitRecord pending = batch.get(parent);
+                parentTree = pending != null ? pending.tree : graph.getTreeHash(graph.findPosition(parent));
+            }
+            Set<String> changed = new HashSet<>();
+            diff.diff(parentTree != null ? ObjectId.fromHex(parentTree) : null, ObjectId.fromHex(record.tree),
+                change -> addChangedPath(change.getPath(), changed));
+            record.filter = BloomFilter.create(changed);
+        }
+    }
+
+    private static boolean addChangedPath(String path, Set<String> changed) {
+        // Every changed file and its parent directories are recorded; past the limit the walk stops
+        for (String dir = path; changed.add(dir); ) {
+            int slash = dir.lastIndexOf('/');
+            if (slash < 0) {
+                break;
+            }
+            dir = dir.substring(0, slash);
+        }
+        return changed.size() <= BloomFilter.MAX_CHANGED_PATHS;
+    }
+
+    private static CommitRecord readRecord(CommitGraph graph, int position) {
+        int[] parentPositions = graph.getParents(position);
+        List<String> parents = new ArrayList<>(parentPositions.length);
+        for (int parent : parentPositions) {
+            parents.add(graph.getHash(parent));
+        }
+        CommitRecord record = new CommitRecord(graph.getHash(position), graph.getTreeHash(position),
+            parents, graph.getCommitTime(position));
+        record.generation = graph.getGeneration(position);
+        record.filter = graph.getBloomFilter(position);
+        return record;
+    }
+
+    private String writeLayer(CommitGraph graph, Map<String, CommitRecord> batch, int baseCount) throws IOException {
+        List<String> hashes = new ArrayList<>(batch.keySet());
+        Collections.sort(hashes);
+        Map<String, Integer> positions = new HashMap<>(hashes.size() * 2);
+        for (int i = 0; i < hashes.size(); i++) {
+            positions.put(hashes.get(i), baseCount + i);
+        }
+
+        Path tempFile = Files.createTempFile(graphDir, "tmp_graph_", null);
+        try {
+            MessageDigest digest = HashUtils.newSha256();
+            byte[] checksum;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(Files.newOutputStream(tempFile), digest)))) {
+                out.write(CommitGraph.MAGIC);
+                out.writeInt(CommitGraph.VERSION);
+                out.writeInt(hashes.size());
+                out.writeInt(baseCount);
+
+                int[] fanout = new int[256];
+                for (String hash : hashes) {
+                    fanout[Integer.parseInt(hash.substring(0, 2), 16)]++;
+                }
+                int total = 0;
+                for (int i = 0; i < 256; i++) {
+                    total += fanout[i];
+                    out.writeInt(total);
+                }
+
+                for (String hash : hashes) {
+                    out.write(HashUtils.hexToBytes(hash));
+                }
+
+                List<Integer> extraEdges = new ArrayList<>();
+                for (String hash : hashes) {
+                    CommitRecord record = batch.get(hash);
+                    out.write(HashUtils.hexToBytes(record.tree));
+                    List<String> parents = record.parents;
+                    out.writeInt(parents.isEmpty() ? CommitGraph.NO_PARENT : resolve(graph, positions, parents.get(0)));
+                    if (parents.size() <= 1) {
+                        out.writeInt(CommitGraph.NO_PARENT);
+                    } else if (parents.size() == 2) {
+                        out.writeInt(resolve(graph, positions, parents.get(1)));
+                    } else {
+                        out.writeInt(CommitGraph.EXTRA_EDGES | extraEdges.size());
+                        for (int i = 1; i < parents.size(); i++) {
+                            int position = resolve(graph, positions, parents.get(i));
+                            extraEdges.add(i == parents.size() - 1 ? position | CommitGraph.EXTRA_EDGES : position);
+                        }
+                    }
+                    out.writeInt(record.generation);
+                    out.writeLong(record.commitTime);
+                }
+
+                out.writeInt(extraEdges.size());
+                for (int edge : extraEdges) {
+                    out.writeInt(edge);
+                }
+
+                int bloomEnd = 0;
+                for (String hash : hashes) {
+                    bloomEnd += batch.get(hash).filter.getLength();
+                    out.writeInt(bloomEnd);
+                }
+                for (String hash : hashes) {
+                    out.write(batch.get(hash).filter.getBytes());
+                }
+                out.flush();
+                checksum = digest.digest();
+                out.write(checksum);
+            }
+
+            String name = "graph-" + HashUtils.bytesToHex(checksum) + ".graph";
+            Files.move(tempFile, graphDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            return name;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static int resolve(CommitGraph graph, Map<String, Integer> positions, String hash) throws IOException {
+        Integer position = positions.get(hash);
+        if (position != null) {
+            return position;
+        }
+        int existing = graph.findPosition(hash);
+        if (existing < 0) {
+            throw new IOException("Commit graph is missing parent " + hash);
+        }
+        return existing;
+    }
+
+    private void writeChain(List<String> chain) throws IOException {
+        Path tempFile = Files.createTempFile(graphDir, "tmp_chain_", null);
+        try {
+            Files.write(tempFile, chain, StandardCharsets.UTF_8);
+            Files.move(tempFile, graphDir.resolve(CHAIN_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private CommitRecord parseCommit(String hash) throws IOException {
+        GitObject object = repo.readObject(hash);
+        if (!"commit".equals(object.getType())) {
+            throw new IOException("Not a commit: " + hash);
+        }
+        
+        try {
+            Commit commit = Commit.parse(object);
+            Commit.PersonIdent committer = commit.getCommitter();
+            return new CommitRecord(hash, commit.getTreeHash(), commit.getParents(),
+                committer != null ? committer.getWhen() : 0);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt commit " + hash + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static class CommitRecord {
+        private final String hash;
+        private final String tree;
+        private final List<String> parents;
+        private final long commitTime;
+        private int generation;
+        private BloomFilter filter;
+
+        CommitRecord(String hash, String tree, List<String> parents, long commitTime) {
+            this.hash = hash;
+            this.tree = tree;
+            this.parents = parents;
+            this.commitTime = commitTime;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.cobra.core;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Properties;
+
+public class Config {
+    public static final String COMPRESSION_LEVEL = "core.compression";
+    public static final String DELTA_CACHE_LIMIT = "pack.deltaCacheLimit";
+    public static final String OBJECT_CACHE_LIMIT = "core.objectCacheLimit";
+    public static final String HASH_ALGORITHM = "core.hashAlgorithm";
+    public static final String FS_MONITOR = "core.fsmonitor";
+    public static final String UNTRACKED_CACHE = "core.untrackedCache";
+
+    private Path configPath;
+    private Properties properties;
+
+    public Config(Path configPath) {
+        this.configPath = configPath;
+        this.properties = new Properties();
+    }
+
+    public static Config load(Path cobraDir) throws IOException {
+        Config config = new Config(cobraDir.resolve("config"));
+        if (Files.exists(config.configPath)) {
+            try (InputStream in = Files.newInputStream(config.configPath)) {
+                config.properties.load(in);
+            }
+        }
+        return config;
+    }
+
+    public void save() throws IOException {
+        try (OutputStream out = Files.newOutputStream(configPath)) {
+            properties.store(out, null);
+        }
+    }
+
+    public String get(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public void set(String key, String value) {
+        properties.setProperty(key, value);
+    }
+}
@@ -0,0 +1,204 @@
+package com.cobra.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class Delta {
+    // Matches shorter than a block are cheaper to store as literal inserts
+    private static final int BLOCK_SIZE = 16;
+    private static final int MAX_CHAIN = 64;
+    private static final int MAX_INSERT = 0x7f;
+    private static final int MAX_COPY = 0xffffff;
+
+    // Instruction stream:
+    //   varint source size, varint target size, then a sequence of
+    //   0x80 | flags, offset bytes, size bytes  -> copy from source
+    //   1..127, literal bytes                   -> insert literal
+    public static byte[] create(byte[] source, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, target.length / 4));
+        writeVarint(out, source.length);
+        writeVarint(out, target.length);
+
+        int blocks = source.length / BLOCK_SIZE;
+        int tableSize = Integer.highestOneBit(Math.max(1, blocks) * 2);
+        int[] heads = new int[tableSize];
+        int[] next = new int[blocks + 1];
+        for (int block = 0; block < blocks; block++) {
+            int bucket = hash(source, block * BLOCK_SIZE) & (tableSize - 1);
+            // Entries are 1-based so that zero marks an empty bucket
+            next[block + 1] = heads[bucket];
+            heads[bucket] = block + 1;
+        }
+
+        int literalStart = 0;
+        int pos = 0;
+        while (pos + BLOCK_SIZE <= target.length) {
+            int bestOffset = -1;
+            int bestLength = 0;
+            if (blocks > 0) {
+                int candidate = heads[hash(target, pos) & (tableSize - 1)];
+                int chain = 0;
+                while (candidate != 0 && chain++ < MAX_CHAIN) {
+                    int offset = (candidate - 1) * BLOCK_SIZE;
+                    int length = matchLength(source, offset, target, pos);
+                    if (length > bestLength) {
+                        bestLength = length;
+                        bestOffset = offset;
+                    }
+                    candidate = next[candidate];
+                }
+            }
+
+            if (bestLength < BLOCK_SIZE) {
+                pos++;
+                continue;
+            }
+
+            // Grow the match backwards over pending literal bytes
+            while (pos > literalStart && bestOffset > 0 && source[bestOffset - 1] == target[pos - 1]) {
+                pos--;
+                bestOffset--;
+                bestLength++;
+            }
+
+            writeInsert(out, target, literalStart, pos - literalStart);
+            writeCopy(out, bestOffset, bestLength);
+            pos += bestLength;
+            literalStart = pos;
+        }
+        writeInsert(out, target, literalStart, target.length - literalStart);
+        return out.toByteArray();
+    }
+
+    public static byte[] apply(byte[] base, byte[] delta) throws IOException {
+        int[] pos = {0};
+        long sourceSize = readVarint(delta, pos);
+        long targetSize = readVarint(delta, pos);
+        if (sourceSize != base.length) {
+            throw new IOException("Delta base size mismatch");
+        }
+        if (targetSize > Integer.MAX_VALUE) {
+            throw new IOException("Delta target too large");
+        }
+
+        byte[] result = new byte[(int) targetSize];
+        int out = 0;
+        int i = pos[0];
+        while (i < delta.length) {
+            int op = delta[i++] & 0xff;
+            if ((op & 0x80) != 0) {
+                int offset = 0;
+                int size = 0;
+                for (int bit = 0; bit < 4; bit++) {
+                    if ((op & (1 << bit)) != 0) {
+                        offset |= (delta[i++] & 0xff) << (8 * bit);
+                    }
+                }
+                for (int bit = 0; bit < 3; bit++) {
+                    if ((op & (0x10 << bit)) != 0) {
+                        size |= (delta[i++] & 0xff) << (8 * bit);
+                    }
+                }
+                if (size == 0) {
+                    size = 0x10000;
+                }
+                if (offset < 0 || offset + size > base.length || out + size > result.length) {
+                    throw new IOException("Corrupt delta: copy out of range");
+                }
+                System.arraycopy(base, offset, result, out, size);
+                out += size;
+            } else if (op != 0) {
+                if (i + op > delta.length || out + op > result.length) {
+                    throw new IOException("Corrupt delta: insert out of range");
+                }
+                System.arraycopy(delta, i, result, out, op);
+                i += op;
+                out += op;
+            } else {
+                throw new IOException("Corrupt delta: unknown opcode");
+            }
+        }
+        if (out != result.length) {
+            throw new IOException("Corrupt delta: target size mismatch");
+        }
+        return result;
+    }
+
+    public static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarint(byte[] data, int[] pos) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (pos[0] >= data.length || shift > 63) {
+                throw new IOException("Corrupt varint");
+            }
+            int b = data[pos[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int offset, int length) {
+        while (length > 0) {
+            int chunk = Math.min(length, MAX_INSERT);
+            out.write(chunk);
+            out.write(data, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        while (length > 0) {
+            int chunk = Math.min(length, MAX_COPY);
+            int op = 0x80;
+            byte[] args = new byte[7];
+            int count = 0;
+            for (int bit = 0; bit < 4; bit++) {
+                int b = (offset >>> (8 * bit)) & 0xff;
+                if (b != 0) {
+                    op |= 1 << bit;
+                    args[count++] = (byte) b;
+                }
+            }
+            for (int bit = 0; bit < 3; bit++) {
+                int b = (chunk >>> (8 * bit)) & 0xff;
+                if (b != 0) {
+                    op |= 0x10 << bit;
+                    args[count++] = (byte) b;
+                }
+            }
+            out.write(op);
+            out.write(args, 0, count);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private static int matchLength(byte[] source, int sourceOffset, byte[] target, int targetOffset) {
+        int max = Math.min(source.length - sourceOffset, target.length - targetOffset);
+        int length = 0;
+        while (length < max && source[sourceOffset + length] == target[targetOffset + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int h = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            h = h * 31 + data[offset + i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
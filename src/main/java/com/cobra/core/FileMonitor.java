@@ -0,0 +1,271 @@
+package com.cobra.core;
+
+import com.cobra.utils.IgnoreRules;
+import com.cobra.utils.WorkingTreeWalker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FileMonitor implements Closeable {
+    // Watches the working tree and remembers which paths changed since a token was handed out.
+    // Tokens are "<instance>:<sequence>", so a token from an earlier monitor forces a full scan.
+    private static final String COOKIE_PREFIX = "fsmonitor-cookie-";
+    private static final long SYNC_TIMEOUT_MILLIS = 1000;
+    // Beyond this many pending paths a full scan is cheaper than the bookkeeping
+    private static final int MAX_CHANGED = 1_000_000;
+
+    private final Path root;
+    private final Path cobraDir;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final String instance = UUID.randomUUID().toString();
+    private final Thread thread;
+
+    // Guarded by this
+    private final Map<String, Long> changed = new HashMap<>();
+    private final Set<String> cookies = new HashSet<>();
+    private long sequence;
+    private long floor;
+    private long cookieCounter;
+    private volatile boolean closed;
+
+    private FileMonitor(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.cobraDir = this.root.resolve(".cobra");
+        this.watcher = this.root.getFileSystem().newWatchService();
+        this.thread = new Thread(this::processEvents, "cobra-fsmonitor");
+        this.thread.setDaemon(true);
+    }
+
+    public static FileMonitor start(Path root) throws IOException {
+        FileMonitor monitor = new FileMonitor(root);
+        // Registration happens before the thread starts; the first token predates it, so it is never trusted
+        monitor.registerTree(monitor.root);
+        monitor.keys.put(monitor.cobraDir.register(monitor.watcher, StandardWatchEventKinds.ENTRY_CREATE),
+            monitor.cobraDir);
+        monitor.thread.start();
+        return monitor;
+    }
+
+    public Changes poll(String token) throws IOException {
+        // The cookie guarantees that every event from before this call has been processed
+        boolean synced = sync();
+        synchronized (this) {
+            String next = instance + ":" + sequence;
+            long since = parse(token);
+            if (!synced || since < floor) {
+                return new Changes(null, next);
+            }
+            Set<String> paths = new HashSet<>();
+            for (Map.Entry<String, Long> entry : changed.entrySet()) {
+                if (entry.getValue() > since) {
+                    paths.add(entry.getKey());
+                }
+            }
+
+            // Only the newest token is kept on disk, so older changes are no longer needed
+            changed.values().removeIf(seq -> seq <= since);
+            floor = since;
+            return new Changes(paths, next);
+        }
+    }
+
+    public boolean isAlive() {
+        return !closed && thread.isAlive();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watcher.close();
+    }
+
+    private long parse(String token) {
+        // Returns -1 for tokens this monitor did not issue
+        if (token == null) {
+            return -1;
+        }
+        int colon = token.lastIndexOf(':');
+        if (colon < 0 || !token.substring(0, colon).equals(instance)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean sync() throws IOException {
+        String name;
+        synchronized (this) {
+            name = COOKIE_PREFIX + cookieCounter++;
+            cookies.add(name);
+        }
+        Path cookie = cobraDir.resolve(name);
+        try {
+            Files.createFile(cookie);
+            long deadline = System.currentTimeMillis() + SYNC_TIMEOUT_MILLIS;
+            synchronized (this) {
+                while (cookies.contains(name) && isAlive()) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        // Polling watch services (or a stalled thread) cannot be trusted to be current
+                        return false;
+                    }
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return !cookies.contains(name);
+            }
+        } finally {
+            synchronized (this) {
+                cookies.remove(name);
+            }
+            Files.deleteIfExists(cookie);
+        }
+    }
+
+    private void processEvents() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow();
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                Path path = dir.resolve((Path) event.context());
+                if (dir.equals(cobraDir)) {
+                    cookieSeen(path.getFileName().toString());
+                    continue;
+                }
+                if (path.equals(cobraDir)) {
+                    // The root's watch reports the metadata directory itself whenever the index or a ref is written
+                    continue;
+                }
+                try {
+                    if (path.getFileName().toString().equals(IgnoreRules.FILE_NAME)) {
+                        // Directories that were ignored until now need watches of their own
+                        registerTree(root);
+                    } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        // Files may have landed in the directory before its watch existed
+                        registerTree(path);
+                    }
+                } catch (IOException e) {
+                    overflow();
+                }
+                markChanged(path);
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void registerTree(Path start) throws IOException {
+        // Ignored directories, often the busiest ones, are not watched; the rules are read afresh each time
+        WorkingTreeWalker rules = new WorkingTreeWalker(root);
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(cobraDir) || (!dir.equals(root) && rules.isIgnored(relativize(dir), true))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                if (!dir.equals(start)) {
+                    markChanged(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!start.equals(root)) {
+                    markChanged(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private synchronized void markChanged(Path path) {
+        if (changed.size() >= MAX_CHANGED) {
+            overflow();
+            return;
+        }
+        changed.put(relativize(path), ++sequence);
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private synchronized void overflow() {
+        // Events were lost; every token issued so far becomes useless
+        changed.clear();
+        floor = ++sequence;
+    }
+
+    private synchronized void cookieSeen(String name) {
+        if (cookies.remove(name)) {
+            notifyAll();
+        }
+    }
+
+    public static class Changes {
+        private final Set<String> paths;
+        private final String token;
+
+        Changes(Set<String> paths, String token) {
+            this.paths = paths;
+            this.token = token;
+        }
+
+        public boolean isComplete() {
+            // False when the caller has to scan the whole working tree
+            return paths != null;
+        }
+
+        public Set<String> getPaths() {
+            return paths;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+}
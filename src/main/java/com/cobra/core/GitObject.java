@@ -1,41 +1,150 @@
 package com.cobra.core;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 public class GitObject {
-    private String type;
+    private final String type;
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    // Decoded lazily, most readers only need the type or the raw bytes
     private String content;
-    private static final Pattern HEADER_PATTERN = Pattern.compile("^([a-z]+)\\s+(\\d+)\\x00(.+)$", Pattern.DOTALL);
 
     public GitObject(String type, String content) {
-        this.type = type;
+        this(type, content.getBytes(StandardCharsets.UTF_8));
         this.content = content;
     }
 
+    public GitObject(String type, byte[] data) {
+        this(type, data, 0, data.length);
+    }
+
+    private GitObject(String type, byte[] data, int offset, int length) {
+        this.type = type;
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
     public String getType() {
         return type;
     }
 
+    public int getSize() {
+        return length;
+    }
+
     public String getContent() {
+        if (content == null) {
+            content = new String(data, offset, length, StandardCharsets.UTF_8);
+        }
         return content;
     }
 
-    public String getFullContent() {
-        return type + " " + content.length() + "\0" + content;
+    public ByteBuffer getData() {
+        return ByteBuffer.wrap(data, offset, length).slice().asReadOnlyBuffer();
+    }
+
+    // Backing array shared with parsers in this package, never modified
+    byte[] rawData() {
+        return data;
+    }
+
+    int rawOffset() {
+        return offset;
+    }
+
+    public byte[] getBytes() {
+        byte[] copy = new byte[length];
+        System.arraycopy(data, offset, copy, 0, length);
+        return copy;
     }
 
-    public static GitObject fromContent(String fullContent) {
-        Matcher matcher = HEADER_PATTERN.matcher(fullContent);
-        if (matcher.matches()) {
-            String type = matcher.group(1);
-            String content = matcher.group(3);
-            return new GitObject(type, content);
+    public byte[] getHeader() {
+        return (type + " " + length + "\0").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public byte[] getFullContent() {
+        byte[] header = getHeader();
+        byte[] full = new byte[header.length + length];
+        System.arraycopy(header, 0, full, 0, header.length);
+        System.arraycopy(data, offset, full, header.length, length);
+        return full;
+    }
+
+    public static GitObject fromContent(byte[] fullContent) {
+        // Parse "<type> <size>\0" without touching the body
+        int space = -1;
+        int i = 0;
+        while (i < fullContent.length && i < 16) {
+            byte b = fullContent[i];
+            if (b == ' ') {
+                space = i;
+                break;
+            }
+            if (b < 'a' || b > 'z') {
+                break;
+            }
+            i++;
+        }
+        if (space <= 0) {
+            throw new IllegalArgumentException("Invalid object format");
+        }
+
+        long size = 0;
+        int nul = -1;
+        for (i = space + 1; i < fullContent.length; i++) {
+            byte b = fullContent[i];
+            if (b == 0) {
+                nul = i;
+                break;
+            }
+            if (b < '0' || b > '9' || i - space > 19) {
+                throw new IllegalArgumentException("Invalid object format");
+            }
+            size = size * 10 + (b - '0');
+        }
+        if (nul <= space + 1 || size != fullContent.length - nul - 1) {
+            throw new IllegalArgumentException("Invalid object format");
+        }
+
+        String type = new String(fullContent, 0, space, StandardCharsets.US_ASCII);
+        return new GitObject(type, fullContent, nul + 1, (int) size);
+    }
+
+    public static String parseType(byte[] header, int length) {
+        for (int i = 0; i < length; i++) {
+            if (header[i] == ' ') {
+                return i > 0 ? new String(header, 0, i, StandardCharsets.US_ASCII) : null;
+            }
+            if (header[i] < 'a' || header[i] > 'z') {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public static long parseSize(byte[] header, int length) {
+        // The size in "<type> <size>\0", or -1 when the header is incomplete or malformed
+        int i = 0;
+        while (i < length && header[i] != ' ') {
+            i++;
+        }
+        long size = 0;
+        for (i++; i < length && i < 32; i++) {
+            if (header[i] == 0) {
+                return size;
+            }
+            if (header[i] < '0' || header[i] > '9') {
+                return -1;
+            }
+            size = size * 10 + (header[i] - '0');
         }
-        throw new IllegalArgumentException("Invalid object format");
+        return -1;
     }
 
-    public static GitObject fromRawContent(String type, String content) {
+    public static GitObject fromRawContent(String type, byte[] content) {
         return new GitObject(type, content);
     }
-} 
\ No newline at end of file
+}
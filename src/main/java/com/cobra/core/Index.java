@@ -1,5 +1,6 @@
 package com.cobra.core;
 
+import com.cobra.utils.FileStat;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 
@@ -8,57 +9,170 @@ import java.nio.file.*;
 import java.util.*;
 
 public class Index {
-    private List<IndexEntry> entries;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    public static final Comparator<String> PATH_ORDER = Index::comparePaths;
+
+    private NavigableMap<String, IndexEntry> entries;
+    // Read-only view of the index file, entries are only materialized once we modify the index
+    private IndexFile mapped;
+    // Modification time of the index file when it was loaded, in nanoseconds
+    private long timestamp;
+    private CacheTree cacheTree;
+    // Read from the mapped file on first use, most commands never look at it
+    private UntrackedCache untrackedCache;
 
     public Index() {
-        this.entries = new ArrayList<>();
+        this.entries = new TreeMap<>(PATH_ORDER);
+        this.cacheTree = new CacheTree();
+        this.untrackedCache = new UntrackedCache();
+    }
+
+    private Index(IndexFile mapped) {
+        this.mapped = mapped;
+        this.cacheTree = mapped.readCacheTree();
     }
 
     public void addEntry(IndexEntry entry) {
-        // Remove existing entry with same path if exists
-        entries.removeIf(e -> e.getPath().equals(entry.getPath()));
-        entries.add(entry);
+        // Replaces any existing entry with the same path
+        materialize();
+        IndexEntry previous = entries.put(entry.getPath(), entry);
+
+        // A stat-only refresh does not change any tree
+        if (previous == null || !previous.getId().equals(entry.getId())
+                || !previous.getMode().equals(entry.getMode())) {
+            cacheTree.invalidate(entry.getPath());
+        }
+        if (previous == null) {
+            untrackedCache.invalidate(entry.getPath());
+        }
     }
 
     public void removeEntry(String path) {
-        entries.removeIf(e -> e.getPath().equals(path));
+        materialize();
+        if (entries.remove(path) != null) {
+            cacheTree.invalidate(path);
+            untrackedCache.invalidate(path);
+        }
     }
 
     public List<IndexEntry> getEntries() {
-        return new ArrayList<>(entries);
+        if (entries == null) {
+            return mapped.readAll();
+        }
+        return new ArrayList<>(entries.values());
     }
 
     public IndexEntry getEntry(String path) {
-        return entries.stream()
-                .filter(e -> e.getPath().equals(path))
-                .findFirst()
-                .orElse(null);
+        if (entries == null) {
+            return mapped.find(path);
+        }
+        return entries.get(path);
     }
 
     public boolean hasEntry(String path) {
-        return entries.stream().anyMatch(e -> e.getPath().equals(path));
+        return getEntry(path) != null;
+    }
+
+    public int size() {
+        return entries == null ? mapped.size() : entries.size();
     }
 
     public void writeToFile(Path indexPath) throws IOException {
-        String json = objectMapper.writeValueAsString(entries);
-        Files.write(indexPath, json.getBytes());
+        UntrackedCache untracked = getUntrackedCache();
+        IndexFile.write(indexPath, getEntries(), cacheTree, untracked);
+        untracked.markSaved();
     }
 
     public static Index load(Repository repo) throws IOException {
         Path indexPath = repo.getJobraDir().resolve("index");
-        if (!Files.exists(indexPath)) {
+        if (!Files.exists(indexPath) || Files.size(indexPath) == 0) {
             return new Index();
         }
 
-        String json = new String(Files.readAllBytes(indexPath));
-        List<IndexEntry> entries = objectMapper.readValue(json, new TypeReference<List<IndexEntry>>() {});
+        byte[] prefix = new byte[4];
+        int length;
+        try (InputStream in = Files.newInputStream(indexPath)) {
+            length = in.readNBytes(prefix, 0, prefix.length);
+        }
+        long timestamp = FileStat.of(indexPath).getMtime();
+        if (IndexFile.isIndexFile(prefix, length)) {
+            Index index = new Index(IndexFile.open(indexPath));
+            index.timestamp = timestamp;
+            return index;
+        }
+
+        // Older repositories store the index as JSON, convert it once
         Index index = new Index();
-        index.entries = entries;
+        for (IndexEntry entry : LegacyFormat.read(indexPath)) {
+            index.addEntry(entry);
+        }
+        index.writeToFile(indexPath);
         return index;
     }
 
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isRacilyClean(IndexEntry entry) {
+        // A file modified in the same timestamp granule as the index write may have
+        // changed again without its stat data changing, so its content must be checked
+        return timestamp == 0 || entry.getMtime() >= timestamp;
+    }
+
+    public CacheTree getCacheTree() {
+        return cacheTree;
+    }
+
+    public synchronized UntrackedCache getUntrackedCache() {
+        if (untrackedCache == null) {
+            untrackedCache = mapped.readUntrackedCache();
+        }
+        return untrackedCache;
+    }
+
     public void clear() {
-        entries.clear();
+        getUntrackedCache().clear();
+        mapped = null;
+        entries = new TreeMap<>(PATH_ORDER);
+        cacheTree.clear();
+    }
+
+    private void materialize() {
+        if (entries == null) {
+            getUntrackedCache();
+            entries = new TreeMap<>(PATH_ORDER);
+            for (IndexEntry entry : mapped.readAll()) {
+                entries.put(entry.getPath(), entry);
+            }
+            mapped = null;
+        }
+    }
+
+    public static int comparePaths(String a, String b) {
+        // Code point order, which matches the unsigned UTF-8 byte order used on disk
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(i);
+            if (ca != cb) {
+                boolean sa = Character.isSurrogate(ca);
+                boolean sb = Character.isSurrogate(cb);
+                if (sa != sb) {
+                    return sa ? 1 : -1;
+                }
+                return ca - cb;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static class LegacyFormat {
+        // Kept in a holder so Jackson is only loaded when an old index is migrated
+        private static final ObjectMapper objectMapper = new ObjectMapper();
+
+        static List<IndexEntry> read(Path indexPath) throws IOException {
+            String json = new String(Files.readAllBytes(indexPath));
+            return objectMapper.readValue(json, new TypeReference<List<IndexEntry>>() {});
+        }
     }
-} 
+}
@@ -1,31 +1,59 @@
 package com.cobra.core;
 
+import com.cobra.utils.FileStat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class IndexEntry {
     @JsonProperty("path")
     private String path;
     
-    @JsonProperty("hash")
-    private String hash;
+    // Stored as an ObjectId, still exposed as hex for JSON and existing callers
+    @JsonIgnore
+    private ObjectId id;
     
     @JsonProperty("mode")
     private String mode;
     
     @JsonProperty("size")
     private long size;
+    
+    @JsonProperty("mtime")
+    private long mtime;
+    
+    @JsonProperty("ctime")
+    private long ctime;
+    
+    @JsonProperty("inode")
+    private long inode;
+    
+    @JsonProperty("device")
+    private long device;
 
     public IndexEntry() {
         // Default constructor for Jackson
     }
 
     public IndexEntry(String path, String hash, String mode, long size) {
+        this(path, ObjectId.fromHex(hash), mode, size);
+    }
+
+    public IndexEntry(String path, ObjectId id, String mode, long size) {
         this.path = path;
-        this.hash = hash;
+        this.id = id;
         this.mode = mode;
         this.size = size;
     }
 
+    public IndexEntry(String path, String hash, String mode, FileStat stat) {
+        this(path, ObjectId.fromHex(hash), mode, stat);
+    }
+
+    public IndexEntry(String path, ObjectId id, String mode, FileStat stat) {
+        this(path, id, mode, stat.getSize());
+        setStat(stat);
+    }
+
     public String getPath() {
         return path;
     }
@@ -34,12 +62,23 @@ public class IndexEntry {
         this.path = path;
     }
 
+    @JsonProperty("hash")
     public String getHash() {
-        return hash;
+        return id != null ? id.toHex() : null;
     }
 
+    @JsonProperty("hash")
     public void setHash(String hash) {
-        this.hash = hash;
+        this.id = hash != null ? ObjectId.fromHex(hash) : null;
+    }
+
+    @JsonIgnore
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
     }
 
     public String getMode() {
@@ -58,11 +97,62 @@ public class IndexEntry {
         this.size = size;
     }
 
+    public long getMtime() {
+        return mtime;
+    }
+
+    public void setMtime(long mtime) {
+        this.mtime = mtime;
+    }
+
+    public long getCtime() {
+        return ctime;
+    }
+
+    public void setCtime(long ctime) {
+        this.ctime = ctime;
+    }
+
+    public long getInode() {
+        return inode;
+    }
+
+    public void setInode(long inode) {
+        this.inode = inode;
+    }
+
+    public long getDevice() {
+        return device;
+    }
+
+    public void setDevice(long device) {
+        this.device = device;
+    }
+
+    @JsonIgnore
+    public void setStat(FileStat stat) {
+        this.mtime = stat.getMtime();
+        this.ctime = stat.getCtime();
+        this.inode = stat.getInode();
+        this.device = stat.getDevice();
+        this.size = stat.getSize();
+    }
+
+    public boolean matchesStat(FileStat stat) {
+        // An entry without recorded stat data never matches and is always rehashed
+        return mtime != 0
+            && mtime == stat.getMtime()
+            && ctime == stat.getCtime()
+            && inode == stat.getInode()
+            && device == stat.getDevice()
+            && size == stat.getSize();
+    }
+
     @Override
     public String toString() {
         return "IndexEntry{" +
                 "path='" + path + '\'' +
-                ", hash='" + hash + '\'' +
+                ", hash='" + id + '\'' +
                 ", mode='" + mode + '\'' +
                 ", size=" + size +
                 '}';
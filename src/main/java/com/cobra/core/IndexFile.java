@@ -0,0 +1,259 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+public class IndexFile {
+    // Layout:
+    //   "CNDX", int version, int entry count
+    //   count * int entry offsets, in path order
+    //   entries: unsigned short path length, UTF-8 path, 32-byte raw hash, int mode, long size
+    //            version 2 adds long mtime, ctime, inode and device
+    //   optional extensions: 4-byte signature, int length, data
+    //   32-byte checksum of everything above
+    public static final int VERSION = 2;
+    private static final byte[] MAGIC = {'C', 'N', 'D', 'X'};
+    private static final int HEADER_SIZE = 12;
+    private static final int HASH_SIZE = 32;
+    private static final byte[] CACHE_TREE_SIGNATURE = {'T', 'R', 'E', 'E'};
+    private static final byte[] UNTRACKED_SIGNATURE = {'U', 'N', 'T', 'R'};
+
+    private final ByteBuffer buffer;
+    private final int version;
+    private final int count;
+
+    private IndexFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE + HASH_SIZE) {
+            throw new IOException("Index file too short");
+        }
+        this.version = buffer.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported index version: " + version);
+        }
+        this.count = buffer.getInt(8);
+        verifyChecksum();
+    }
+
+    public static boolean isIndexFile(byte[] prefix, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (prefix[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static IndexFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexFile(mapped);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public IndexEntry getEntry(int position) {
+        int offset = buffer.getInt(HEADER_SIZE + position * 4);
+        int pathLength = buffer.getShort(offset) & 0xffff;
+        byte[] pathBytes = new byte[pathLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 2);
+        view.get(pathBytes);
+
+        byte[] hash = new byte[HASH_SIZE];
+        view.get(hash);
+        int mode = view.getInt();
+        long size = view.getLong();
+        IndexEntry entry = new IndexEntry(new String(pathBytes, StandardCharsets.UTF_8),
+            ObjectId.fromRaw(hash), Integer.toOctalString(mode), size);
+        if (version >= 2) {
+            entry.setMtime(view.getLong());
+            entry.setCtime(view.getLong());
+            entry.setInode(view.getLong());
+            entry.setDevice(view.getLong());
+        }
+        return entry;
+    }
+
+    public IndexEntry find(String path) {
+        byte[] key = path.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePathAt(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return getEntry(mid);
+            }
+        }
+        return null;
+    }
+
+    public List<IndexEntry> readAll() {
+        List<IndexEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(getEntry(i));
+        }
+        return entries;
+    }
+
+    public CacheTree readCacheTree() {
+        ByteBuffer data = findExtension(CACHE_TREE_SIGNATURE);
+        return data != null ? CacheTree.read(data) : new CacheTree();
+    }
+
+    public UntrackedCache readUntrackedCache() {
+        ByteBuffer data = findExtension(UNTRACKED_SIGNATURE);
+        return data != null ? UntrackedCache.read(data) : new UntrackedCache();
+    }
+
+    private ByteBuffer findExtension(byte[] signature) {
+        // Extensions start right after the last entry
+        int position = HEADER_SIZE;
+        if (count > 0) {
+            int offset = buffer.getInt(HEADER_SIZE + (count - 1) * 4);
+            position = offset + entrySize(version, buffer.getShort(offset) & 0xffff);
+        }
+
+        int end = buffer.capacity() - HASH_SIZE;
+        while (position + 8 <= end) {
+            boolean found = true;
+            for (int i = 0; i < signature.length; i++) {
+                found &= buffer.get(position + i) == signature[i];
+            }
+            int length = buffer.getInt(position + 4);
+            if (found) {
+                ByteBuffer data = buffer.duplicate();
+                data.position(position + 8).limit(position + 8 + length);
+                return data.slice();
+            }
+            // Skip extensions we are not looking for
+            position += 8 + length;
+        }
+        return null;
+    }
+
+    private int comparePathAt(int position, byte[] key) {
+        int offset = buffer.getInt(HEADER_SIZE + position * 4);
+        int pathLength = buffer.getShort(offset) & 0xffff;
+        int min = Math.min(pathLength, key.length);
+        for (int i = 0; i < min; i++) {
+            int a = buffer.get(offset + 2 + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return pathLength - key.length;
+    }
+
+    private void verifyChecksum() throws IOException {
+        MessageDigest digest = HashUtils.newSha256();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(buffer.capacity() - HASH_SIZE);
+        digest.update(content);
+
+        byte[] expected = new byte[HASH_SIZE];
+        ByteBuffer trailer = buffer.duplicate();
+        trailer.position(buffer.capacity() - HASH_SIZE);
+        trailer.get(expected);
+        if (!MessageDigest.isEqual(expected, digest.digest())) {
+            throw new IOException("Index file checksum mismatch");
+        }
+    }
+
+    public static void write(Path path, Collection<IndexEntry> entries, CacheTree cacheTree,
+                             UntrackedCache untrackedCache) throws IOException {
+        // Sort by UTF-8 bytes so readers can binary-search the raw path bytes
+        List<byte[]> paths = new ArrayList<>(entries.size());
+        List<IndexEntry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> Index.comparePaths(a.getPath(), b.getPath()));
+        for (IndexEntry entry : sorted) {
+            byte[] pathBytes = entry.getPath().getBytes(StandardCharsets.UTF_8);
+            if (pathBytes.length > 0xffff) {
+                throw new IOException("Path too long for index: " + entry.getPath());
+            }
+            paths.add(pathBytes);
+        }
+
+        Path tempFile = Files.createTempFile(path.getParent(), "tmp_index_", null);
+        try {
+            MessageDigest digest = HashUtils.newSha256();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(Files.newOutputStream(tempFile), digest), 64 * 1024))) {
+                out.write(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+
+                int offset = HEADER_SIZE + sorted.size() * 4;
+                for (int i = 0; i < sorted.size(); i++) {
+                    out.writeInt(offset);
+                    offset += entrySize(VERSION, paths.get(i).length);
+                }
+
+                byte[] rawHash = new byte[HASH_SIZE];
+                for (int i = 0; i < sorted.size(); i++) {
+                    IndexEntry entry = sorted.get(i);
+                    byte[] pathBytes = paths.get(i);
+                    out.writeShort(pathBytes.length);
+                    out.write(pathBytes);
+                    entry.getId().copyRawTo(rawHash, 0);
+                    out.write(rawHash);
+                    out.writeInt(Integer.parseInt(entry.getMode(), 8));
+                    out.writeLong(entry.getSize());
+                    out.writeLong(entry.getMtime());
+                    out.writeLong(entry.getCtime());
+                    out.writeLong(entry.getInode());
+                    out.writeLong(entry.getDevice());
+                }
+
+                if (cacheTree != null && cacheTree.size() > 0) {
+                    ByteArrayOutputStream extension = new ByteArrayOutputStream();
+                    cacheTree.write(new DataOutputStream(extension));
+                    out.write(CACHE_TREE_SIGNATURE);
+                    out.writeInt(extension.size());
+                    extension.writeTo(out);
+                }
+                if (untrackedCache != null && untrackedCache.size() > 0) {
+                    ByteArrayOutputStream extension = new ByteArrayOutputStream();
+                    untrackedCache.write(new DataOutputStream(extension));
+                    out.write(UNTRACKED_SIGNATURE);
+                    out.writeInt(extension.size());
+                    extension.writeTo(out);
+                }
+                out.flush();
+                out.write(digest.digest());
+            }
+
+            // Replace atomically, the old file may still be mapped by a reader
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static int entrySize(int version, int pathLength) {
+        int size = 2 + pathLength + HASH_SIZE + 4 + 8;
+        return version >= 2 ? size + 4 * 8 : size;
+    }
+}
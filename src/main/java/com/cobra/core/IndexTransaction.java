@@ -0,0 +1,60 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.util.*;
+
+public class IndexTransaction implements AutoCloseable {
+    private final Repository repo;
+    // A null value marks a removal
+    private final NavigableMap<String, IndexEntry> pending = new TreeMap<>(Index.PATH_ORDER);
+    private boolean finished;
+
+    IndexTransaction(Repository repo) {
+        this.repo = repo;
+    }
+
+    public synchronized void stage(IndexEntry entry) {
+        checkOpen();
+        pending.put(entry.getPath(), entry);
+    }
+
+    public synchronized void remove(String path) {
+        checkOpen();
+        pending.put(path, null);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void commit() throws IOException {
+        checkOpen();
+        finished = true;
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Index index = repo.getIndex();
+        for (Map.Entry<String, IndexEntry> change : pending.entrySet()) {
+            if (change.getValue() != null) {
+                index.addEntry(change.getValue());
+            } else {
+                index.removeEntry(change.getKey());
+            }
+        }
+        repo.saveIndex();
+    }
+
+    @Override
+    public synchronized void close() {
+        // Closing without commit discards everything that was staged
+        finished = true;
+        pending.clear();
+    }
+
+    private void checkOpen() {
+        if (finished) {
+            throw new IllegalStateException("Index transaction already finished");
+        }
+    }
+}
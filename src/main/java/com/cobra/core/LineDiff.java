@@ -0,0 +1,498 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+public class LineDiff {
+    // Line-level diff of two texts. The common prefix and suffix are trimmed by comparing bytes,
+    // then the remaining lines are hashed and interned once so both algorithms compare ints.
+    // Regions are processed from an explicit stack, left before right, so edits come out in order.
+
+    public enum Algorithm {
+        // Minimal edit script, in linear space by bisecting on the middle snake
+        MYERS,
+        // Anchors on the rarest lines the two sides share, which keeps moved blocks and braces readable
+        HISTOGRAM
+    }
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    // Histogram diff leaves regions whose shared lines all repeat more than this to Myers
+    private static final int MAX_CHAIN_LENGTH = 64;
+    // A bisection explores at most max(this, sqrt(region size)) edits before it settles for
+    // the furthest-reaching path, so pathological inputs cost near-linear time, not quadratic
+    private static final int MIN_COST = 256;
+
+    private final Algorithm algorithm;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+    public LineDiff(Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public void setTimeout(long millis) {
+        // Regions still undecided when the time is up become a single replacement; 0 waits forever
+        this.timeoutMillis = millis;
+    }
+
+    public List<Edit> diff(Text a, Text b) {
+        int aEnd = a.size();
+        int bEnd = b.size();
+        int prefix = 0;
+        while (prefix < aEnd && prefix < bEnd && a.lineEquals(prefix, b, prefix)) {
+            prefix++;
+        }
+        while (aEnd > prefix && bEnd > prefix && a.lineEquals(aEnd - 1, b, bEnd - 1)) {
+            aEnd--;
+            bEnd--;
+        }
+
+        List<Edit> edits = new ArrayList<>();
+        if (prefix == aEnd && prefix == bEnd) {
+            return edits;
+        }
+        if (prefix == aEnd || prefix == bEnd) {
+            edits.add(new Edit(prefix, aEnd, prefix, bEnd));
+            return edits;
+        }
+
+        Interner interner = new Interner(aEnd - prefix + bEnd - prefix);
+        int[] ia = interner.intern(a, prefix, aEnd);
+        int[] ib = interner.intern(b, prefix, bEnd);
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : Long.MAX_VALUE;
+        new Run(ia, ib, interner.size(), prefix, deadline, edits).run(algorithm);
+        return edits;
+    }
+
+    public static class Text {
+        // Raw bytes split into lines; each line keeps its '\n', only the last may lack one
+        private static final int BINARY_PROBE = 8000;
+
+        private final byte[] data;
+        private final int offset;
+        private final int length;
+        private int[] starts;
+        private int count;
+
+        public Text(byte[] data) {
+            this(data, 0, data.length);
+        }
+
+        public Text(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            int end = offset + length;
+            starts = new int[16];
+            int start = offset;
+            while (start < end) {
+                addLine(start);
+                int newline = start;
+                while (newline < end && data[newline] != '\n') {
+                    newline++;
+                }
+                start = newline + 1;
+            }
+            addLine(Math.min(start, end));
+            count--;
+        }
+
+        private void addLine(int start) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = start;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public boolean isBinary() {
+            // Same test as git: a NUL byte near the start
+            int end = offset + Math.min(length, BINARY_PROBE);
+            for (int i = offset; i < end; i++) {
+                if (data[i] == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean hasNewline(int line) {
+            int end = starts[line + 1];
+            return end > starts[line] && data[end - 1] == '\n';
+        }
+
+        public void writeLine(OutputStream out, int line) throws IOException {
+            out.write(data, starts[line], starts[line + 1] - starts[line]);
+        }
+
+        boolean lineEquals(int line, Text other, int otherLine) {
+            return Arrays.equals(data, starts[line], starts[line + 1],
+                other.data, other.starts[otherLine], other.starts[otherLine + 1]);
+        }
+
+        int hashLine(int line) {
+            int hash = 0x811c9dc5;
+            for (int i = starts[line], end = starts[line + 1]; i < end; i++) {
+                hash = (hash ^ (data[i] & 0xff)) * 0x01000193;
+            }
+            return hash;
+        }
+    }
+
+    public static class Edit {
+        // Replaces lines [beginA, endA) of the old text with lines [beginB, endB) of the new
+        private final int beginA;
+        private final int endA;
+        private final int beginB;
+        private final int endB;
+
+        public Edit(int beginA, int endA, int beginB, int endB) {
+            this.beginA = beginA;
+            this.endA = endA;
+            this.beginB = beginB;
+            this.endB = endB;
+        }
+
+        public int getBeginA() {
+            return beginA;
+        }
+
+        public int getEndA() {
+            return endA;
+        }
+
+        public int getBeginB() {
+            return beginB;
+        }
+
+        public int getEndB() {
+            return endB;
+        }
+
+        @Override
+        public String toString() {
+            return "Edit[" + beginA + "-" + endA + "," + beginB + "-" + endB + "]";
+        }
+    }
+
+    private static class Interner {
+        // Open addressing over line hashes; equal lines on either side get the same id
+        private final int[] slots;
+        private final int mask;
+        private int[] hashes;
+        private Text[] texts;
+        private int[] lines;
+        private int size;
+
+        Interner(int lineCount) {
+            int capacity = Integer.highestOneBit(Math.max(16, lineCount * 2 - 1)) << 1;
+            slots = new int[capacity];
+            mask = capacity - 1;
+            hashes = new int[64];
+            texts = new Text[64];
+            lines = new int[64];
+        }
+
+        int[] intern(Text text, int from, int to) {
+            int[] ids = new int[to - from];
+            for (int line = from; line < to; line++) {
+                ids[line - from] = intern(text, line);
+            }
+            return ids;
+        }
+
+        private int intern(Text text, int line) {
+            int hash = text.hashLine(line);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                int id = slots[slot] - 1;
+                if (hashes[id] == hash && texts[id].lineEquals(lines[id], text, line)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size * 2);
+                texts = Arrays.copyOf(texts, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            hashes[size] = hash;
+            texts[size] = text;
+            lines[size] = line;
+            slots[slot] = ++size;
+            return size - 1;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static class Run {
+        private static final int MYERS = 0;
+        private static final int HISTOGRAM = 1;
+
+        private final int[] a;
+        private final int[] b;
+        private final int ids;
+        // Line numbers in the texts are region indexes plus the trimmed prefix
+        private final int base;
+        private final long deadline;
+        private final List<Edit> edits;
+        private final Deque<int[]> regions = new ArrayDeque<>();
+
+        // Myers' forward and reverse furthest-reaching x per diagonal, reused by every bisection
+        private int[] forward;
+        private int[] reverse;
+        // Histogram occurrence counts per line id, first occurrence per id and next occurrence per line
+        private int[] counts;
+        private int[] heads;
+        private int[] nexts;
+
+        Run(int[] a, int[] b, int ids, int base, long deadline, List<Edit> edits) {
+            this.a = a;
+            this.b = b;
+            this.ids = ids;
+            this.base = base;
+            this.deadline = deadline;
+            this.edits = edits;
+        }
+
+        void run(Algorithm algorithm) {
+            int mode = algorithm == Algorithm.HISTOGRAM ? HISTOGRAM : MYERS;
+            regions.push(new int[]{0, a.length, 0, b.length, mode});
+            while (!regions.isEmpty()) {
+                int[] region = regions.pop();
+                process(region[0], region[1], region[2], region[3], region[4]);
+            }
+        }
+
+        private void process(int aStart, int aEnd, int bStart, int bEnd, int mode) {
+            while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+                aStart++;
+                bStart++;
+            }
+            while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+                aEnd--;
+                bEnd--;
+            }
+            if (aStart == aEnd || bStart == bEnd || System.nanoTime() > deadline) {
+                addEdit(aStart, aEnd, bStart, bEnd);
+            } else if (mode == HISTOGRAM) {
+                histogram(aStart, aEnd, bStart, bEnd);
+            } else {
+                bisect(aStart, aEnd, bStart, bEnd);
+            }
+        }
+
+        private void split(int aStart, int aEnd, int bStart, int bEnd, int aMid, int bMid, int mode) {
+            // The right half is pushed first so the left one is processed, and emitted, first
+            regions.push(new int[]{aMid, aEnd, bMid, bEnd, mode});
+            regions.push(new int[]{aStart, aMid, bStart, bMid, mode});
+        }
+
+        private void addEdit(int aStart, int aEnd, int bStart, int bEnd) {
+            if (aStart == aEnd && bStart == bEnd) {
+                return;
+            }
+            int last = edits.size() - 1;
+            if (last >= 0) {
+                Edit previous = edits.get(last);
+                if (previous.endA == aStart + base && previous.endB == bStart + base) {
+                    edits.set(last, new Edit(previous.beginA, aEnd + base, previous.beginB, bEnd + base));
+                    return;
+                }
+            }
+            edits.add(new Edit(aStart + base, aEnd + base, bStart + base, bEnd + base));
+        }
+
+        private void bisect(int aStart, int aEnd, int bStart, int bEnd) {
+            // Runs the forward and reverse searches towards each other until they overlap;
+            // the overlap lies on an optimal path, so the halves around it are diffed separately
+            int n = aEnd - aStart;
+            int m = bEnd - bStart;
+            int maxD = (n + m + 1) / 2;
+            int maxCost = Math.max(MIN_COST, (int) Math.sqrt(n + m + 3));
+            int limit = Math.min(maxD, maxCost + 1);
+            int offset = limit;
+            int length = 2 * limit + 2;
+            if (forward == null || forward.length < length) {
+                forward = new int[length];
+                reverse = new int[length];
+            }
+            Arrays.fill(forward, 0, length, -1);
+            Arrays.fill(reverse, 0, length, -1);
+            forward[offset + 1] = 0;
+            reverse[offset + 1] = 0;
+            int delta = n - m;
+            boolean front = (delta & 1) != 0;
+            int k1Start = 0;
+            int k1End = 0;
+            int k2Start = 0;
+            int k2End = 0;
+            int d = 0;
+            for (; d < limit; d++) {
+                if ((d & 63) == 63 && System.nanoTime() > deadline) {
+                    break;
+                }
+                for (int k1 = -d + k1Start; k1 <= d - k1End; k1 += 2) {
+                    int k1Offset = offset + k1;
+                    int x1 = k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])
+                        ? forward[k1Offset + 1] : forward[k1Offset - 1] + 1;
+                    int y1 = x1 - k1;
+                    while (x1 < n && y1 < m && a[aStart + x1] == b[bStart + y1]) {
+                        x1++;
+                        y1++;
+                    }
+                    forward[k1Offset] = x1;
+                    if (x1 > n) {
+                        k1End += 2;
+                    } else if (y1 > m) {
+                        k1Start += 2;
+                    } else if (front) {
+                        int k2Offset = offset + delta - k1;
+                        if (k2Offset >= 0 && k2Offset < length && reverse[k2Offset] != -1 && x1 >= n - reverse[k2Offset]) {
+                            split(aStart, aEnd, bStart, bEnd, aStart + x1, bStart + y1, MYERS);
+                            return;
+                        }
+                    }
+                }
+                for (int k2 = -d + k2Start; k2 <= d - k2End; k2 += 2) {
+                    int k2Offset = offset + k2;
+                    int x2 = k2 == -d || (k2 != d && reverse[k2Offset - 1] < reverse[k2Offset + 1])
+                        ? reverse[k2Offset + 1] : reverse[k2Offset - 1] + 1;
+                    int y2 = x2 - k2;
+                    while (x2 < n && y2 < m && a[aEnd - 1 - x2] == b[bEnd - 1 - y2]) {
+                        x2++;
+                        y2++;
+                    }
+                    reverse[k2Offset] = x2;
+                    if (x2 > n) {
+                        k2End += 2;
+                    } else if (y2 > m) {
+                        k2Start += 2;
+                    } else if (!front) {
+                        int k1Offset = offset + delta - k2;
+                        if (k1Offset >= 0 && k1Offset < length && forward[k1Offset] != -1) {
+                            int x1 = forward[k1Offset];
+                            int y1 = offset + x1 - k1Offset;
+                            if (x1 >= n - x2) {
+                                split(aStart, aEnd, bStart, bEnd, aStart + x1, bStart + y1, MYERS);
+                                return;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (d < maxD && d > 0) {
+                // Out of budget: split at the forward path that got furthest, which is valid if not minimal
+                int bestX = -1;
+                int bestY = -1;
+                for (int k = -(d - 1) + k1Start; k <= d - 1 - k1End; k += 2) {
+                    int x = forward[offset + k];
+                    int y = x - k;
+                    if (x >= 0 && x <= n && y >= 0 && y <= m && x + y > bestX + bestY) {
+                        bestX = x;
+                        bestY = y;
+                    }
+                }
+                if (bestX + bestY > 0 && bestX + bestY < n + m) {
+                    split(aStart, aEnd, bStart, bEnd, aStart + bestX, bStart + bestY, MYERS);
+                    return;
+                }
+            }
+            // Nothing in common, or no time left
+            addEdit(aStart, aEnd, bStart, bEnd);
+        }
+
+        private void histogram(int aStart, int aEnd, int bStart, int bEnd) {
+            // Finds the longest common run that contains the rarest line both sides share,
+            // then diffs what lies before and after it
+            if (counts == null) {
+                counts = new int[ids];
+                heads = new int[ids];
+                Arrays.fill(heads, -1);
+                nexts = new int[a.length];
+            }
+            for (int i = aEnd - 1; i >= aStart; i--) {
+                int id = a[i];
+                nexts[i] = heads[id];
+                heads[id] = i;
+                counts[id]++;
+            }
+
+            boolean common = false;
+            int bestCount = MAX_CHAIN_LENGTH;
+            int bestLength = 0;
+            int bestA = 0;
+            int bestB = 0;
+            int bi = bStart;
+            while (bi < bEnd) {
+                int count = counts[b[bi]];
+                if (count == 0) {
+                    bi++;
+                    continue;
+                }
+                common = true;
+                if (count > bestCount) {
+                    bi++;
+                    continue;
+                }
+                int nextB = bi + 1;
+                for (int ai = heads[b[bi]]; ai >= 0; ai = nexts[ai]) {
+                    int as = ai;
+                    int bs = bi;
+                    int ae = ai + 1;
+                    int be = bi + 1;
+                    int runCount = count;
+                    while (as > aStart && bs > bStart && a[as - 1] == b[bs - 1]) {
+                        as--;
+                        bs--;
+                        runCount = Math.min(runCount, counts[a[as]]);
+                    }
+                    while (ae < aEnd && be < bEnd && a[ae] == b[be]) {
+                        runCount = Math.min(runCount, counts[a[ae]]);
+                        ae++;
+                        be++;
+                    }
+                    nextB = Math.max(nextB, be);
+                    if (ae - as > bestLength || runCount < bestCount) {
+                        bestA = as;
+                        bestB = bs;
+                        bestLength = ae - as;
+                        bestCount = runCount;
+                    }
+                }
+                bi = nextB;
+            }
+
+            for (int i = aStart; i < aEnd; i++) {
+                heads[a[i]] = -1;
+                counts[a[i]] = 0;
+            }
+
+            if (bestLength > 0) {
+                regions.push(new int[]{bestA + bestLength, aEnd, bestB + bestLength, bEnd, HISTOGRAM});
+                regions.push(new int[]{aStart, bestA, bStart, bestB, HISTOGRAM});
+            } else if (common) {
+                // Every shared line is too frequent to anchor on
+                regions.push(new int[]{aStart, aEnd, bStart, bEnd, MYERS});
+            } else {
+                addEdit(aStart, aEnd, bStart, bEnd);
+            }
+        }
+    }
+}
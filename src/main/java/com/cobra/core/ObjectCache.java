@@ -0,0 +1,86 @@
+package com.cobra.core;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ObjectCache<K> {
+    // Rough per-entry cost of the map node, key and GitObject wrapper
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long capacity;
+    private long weight;
+    private final LinkedHashMap<K, GitObject> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ObjectCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public GitObject get(K key) {
+        GitObject object;
+        synchronized (this) {
+            object = entries.get(key);
+        }
+        if (object != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return object;
+    }
+
+    public synchronized GitObject peek(K key) {
+        // For probes that only want an object's type or size; they are not counted as hits or
+        // misses, so the statistics keep describing real object reads
+        return entries.get(key);
+    }
+
+    public synchronized void put(K key, GitObject object) {
+        long objectWeight = weigh(object);
+        if (objectWeight > capacity) {
+            return;
+        }
+        GitObject previous = entries.put(key, object);
+        if (previous != null) {
+            weight -= weigh(previous);
+        }
+        weight += objectWeight;
+
+        // Evict least recently used entries until we are back under capacity
+        Iterator<GitObject> it = entries.values().iterator();
+        while (weight > capacity && it.hasNext()) {
+            weight -= weigh(it.next());
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static long weigh(GitObject object) {
+        return (long) object.getSize() + ENTRY_OVERHEAD;
+    }
+}
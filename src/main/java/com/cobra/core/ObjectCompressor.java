@@ -0,0 +1,161 @@
+package com.cobra.core;
+
+import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+public class ObjectCompressor {
+    private static final int BUFFER_SIZE = 8192;
+    // Enough to hold "<type> <size>\0" for any object
+    private static final int MAX_HEADER_SIZE = 32;
+
+    private final int level;
+    // Deflater and Inflater hold native buffers, so keep one per thread and reset it
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    public ObjectCompressor(int level) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public byte[] deflate(byte[] data) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    public OutputStream deflating(OutputStream out) {
+        // The stream does not end() a caller-supplied Deflater on close, so it can be reused
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+    }
+
+    public static boolean isCompressed(byte[] data, int length) {
+        // zlib header: CM=8 in the low nibble and a CMF/FLG pair divisible by 31.
+        // Uncompressed objects always start with a lowercase type name.
+        if (length < 2) {
+            return false;
+        }
+        int cmf = data[0] & 0xff;
+        int flg = data[1] & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    public byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            // Inflate the header first so the output can be allocated at its exact size
+            byte[] header = new byte[MAX_HEADER_SIZE];
+            int headerLength = inflateFully(inflater, header, 0, header.length);
+            int nul = indexOf(header, headerLength, (byte) 0);
+            if (nul < 0) {
+                throw new IOException("Corrupt object header");
+            }
+            int space = indexOf(header, nul, (byte) ' ');
+            if (space < 0) {
+                throw new IOException("Corrupt object header");
+            }
+            long size;
+            try {
+                size = Long.parseLong(new String(header, space + 1, nul - space - 1, "US-ASCII"));
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt object header");
+            }
+            if (size > Integer.MAX_VALUE - MAX_HEADER_SIZE) {
+                throw new IOException("Object too large to load into memory: " + size + " bytes");
+            }
+
+            byte[] result = new byte[nul + 1 + (int) size];
+            int copied = Math.min(headerLength, result.length);
+            System.arraycopy(header, 0, result, 0, copied);
+            int total = copied + inflateFully(inflater, result, copied, result.length - copied);
+            if (total != result.length || !atEnd(inflater)) {
+                throw new IOException("Corrupt object: size mismatch");
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed object", e);
+        }
+    }
+
+    public byte[] inflateRaw(byte[] compressed, int size) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] result = new byte[size];
+        try {
+            if (inflateFully(inflater, result, 0, size) != size || !atEnd(inflater)) {
+                throw new IOException("Corrupt compressed data: size mismatch");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed data", e);
+        }
+        return result;
+    }
+
+    public byte[] inflateHeader(byte[] compressed, int length) throws IOException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed, 0, length);
+        byte[] header = new byte[MAX_HEADER_SIZE];
+        try {
+            int count = inflateFully(inflater, header, 0, header.length);
+            byte[] result = new byte[count];
+            System.arraycopy(header, 0, result, 0, count);
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed object", e);
+        }
+    }
+
+    private static int inflateFully(Inflater inflater, byte[] out, int offset, int length) throws DataFormatException {
+        int total = 0;
+        while (total < length && !inflater.finished()) {
+            int count = inflater.inflate(out, offset + total, length - total);
+            if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                break;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private static boolean atEnd(Inflater inflater) throws DataFormatException {
+        // The trailing checksum may still be unread once all output has been produced
+        if (!inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+            return false;
+        }
+        return inflater.finished();
+    }
+
+    private static int indexOf(byte[] data, int length, byte value) {
+        for (int i = 0; i < length; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,149 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+public final class ObjectId implements Comparable<ObjectId> {
+    // A 32-byte object hash held as four big-endian words: about half the memory of the
+    // 64-character hex String, with cheap equals, hashCode and unsigned ordering
+    public static final int RAW_SIZE = 32;
+    public static final int HEX_SIZE = 64;
+
+    private final long w1;
+    private final long w2;
+    private final long w3;
+    private final long w4;
+
+    private ObjectId(long w1, long w2, long w3, long w4) {
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        this.w4 = w4;
+    }
+
+    public static ObjectId fromRaw(byte[] raw) {
+        return fromRaw(raw, 0);
+    }
+
+    public static ObjectId fromRaw(byte[] raw, int offset) {
+        if (raw.length - offset < RAW_SIZE) {
+            throw new IllegalArgumentException("Object id needs " + RAW_SIZE + " bytes");
+        }
+        return new ObjectId(word(raw, offset), word(raw, offset + 8),
+            word(raw, offset + 16), word(raw, offset + 24));
+    }
+
+    public static ObjectId fromHex(String hex) {
+        if (hex == null || hex.length() != HEX_SIZE) {
+            throw new IllegalArgumentException("Invalid object id: " + hex);
+        }
+        return new ObjectId(hexWord(hex, 0), hexWord(hex, 16), hexWord(hex, 32), hexWord(hex, 48));
+    }
+
+    public static boolean isId(String hex) {
+        if (hex == null || hex.length() != HEX_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < HEX_SIZE; i++) {
+            if (HashUtils.hexValue(hex.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFirstByte() {
+        return (int) (w1 >>> 56);
+    }
+
+    public byte[] getRaw() {
+        byte[] raw = new byte[RAW_SIZE];
+        copyRawTo(raw, 0);
+        return raw;
+    }
+
+    public void copyRawTo(byte[] out, int offset) {
+        putWord(out, offset, w1);
+        putWord(out, offset + 8, w2);
+        putWord(out, offset + 16, w3);
+        putWord(out, offset + 24, w4);
+    }
+
+    public String toHex() {
+        StringBuilder hex = new StringBuilder(HEX_SIZE);
+        HashUtils.appendHex(hex, w1);
+        HashUtils.appendHex(hex, w2);
+        HashUtils.appendHex(hex, w3);
+        HashUtils.appendHex(hex, w4);
+        return hex.toString();
+    }
+
+    public boolean rawEquals(byte[] raw, int offset) {
+        return w1 == word(raw, offset) && w2 == word(raw, offset + 8)
+            && w3 == word(raw, offset + 16) && w4 == word(raw, offset + 24);
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        int cmp = Long.compareUnsigned(w1, other.w1);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(w2, other.w2);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(w3, other.w3);
+        }
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(w4, other.w4);
+        }
+        return cmp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) o;
+        return w1 == other.w1 && w2 == other.w2 && w3 == other.w3 && w4 == other.w4;
+    }
+
+    @Override
+    public int hashCode() {
+        // The hash bits are already uniformly distributed
+        return (int) (w1 >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    private static long word(byte[] raw, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (raw[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static void putWord(byte[] out, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            out[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long hexWord(String hex, int offset) {
+        long value = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = HashUtils.hexValue(hex.charAt(offset + i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid object id: " + hex);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
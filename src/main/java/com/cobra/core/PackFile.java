@@ -0,0 +1,293 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.InflaterInputStream;
+
+public class PackFile implements Closeable {
+    // Layout:
+    //   "CPCK", int version, int object count
+    //   entries: type byte, varint size, [varint base distance], varint compressed length, deflated data
+    //   32-byte checksum of everything above
+    public static final int VERSION = 1;
+    public static final byte[] MAGIC = {'C', 'P', 'C', 'K'};
+    public static final int HEADER_SIZE = 12;
+
+    public static final int TYPE_COMMIT = 1;
+    public static final int TYPE_TREE = 2;
+    public static final int TYPE_BLOB = 3;
+    public static final int TYPE_OFS_DELTA = 6;
+
+    private static final int MAX_ENTRY_HEADER = 32;
+
+    private final Path packPath;
+    private final PackIndex index;
+    private final FileChannel channel;
+    private final ObjectCompressor compressor;
+    private final ObjectCache<Long> baseCache;
+
+    public PackFile(Path packPath, PackIndex index, ObjectCompressor compressor, long cacheLimit) throws IOException {
+        this.packPath = packPath;
+        this.index = index;
+        this.channel = FileChannel.open(packPath, StandardOpenOption.READ);
+        this.compressor = compressor;
+        this.baseCache = new ObjectCache<>(cacheLimit);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                throw new IOException("Not a pack file: " + packPath);
+            }
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pack version in " + packPath);
+        }
+        if (header.getInt(8) != index.getObjectCount()) {
+            throw new IOException("Pack and index object counts differ: " + packPath);
+        }
+    }
+
+    public static PackFile open(Path idxPath, ObjectCompressor compressor, long cacheLimit) throws IOException {
+        String name = idxPath.getFileName().toString();
+        Path packPath = idxPath.resolveSibling(name.substring(0, name.length() - ".idx".length()) + ".pack");
+        return new PackFile(packPath, PackIndex.open(idxPath), compressor, cacheLimit);
+    }
+
+    public Path getPackPath() {
+        return packPath;
+    }
+
+    public PackIndex getIndex() {
+        return index;
+    }
+
+    public boolean contains(byte[] hash) {
+        return index.findOffset(hash) >= 0;
+    }
+
+    public GitObject readObject(byte[] hash) throws IOException {
+        long offset = index.findOffset(hash);
+        if (offset < 0) {
+            return null;
+        }
+        return readAt(offset);
+    }
+
+    public String readObjectType(byte[] hash) throws IOException {
+        long offset = index.findOffset(hash);
+        if (offset < 0) {
+            return null;
+        }
+        // Follow the delta chain through entry headers only
+        while (true) {
+            Entry entry = readEntryHeader(offset);
+            if (entry.type != TYPE_OFS_DELTA) {
+                return typeName(entry.type);
+            }
+            offset = entry.baseOffset;
+        }
+    }
+
+    public Repository.ObjectHeader readObjectHeader(byte[] hash) throws IOException {
+        long offset = index.findOffset(hash);
+        if (offset < 0) {
+            return null;
+        }
+        // A delta records its result size at the start of its data, so only that prefix is inflated
+        Entry entry = readEntryHeader(offset);
+        long size = entry.size;
+        if (entry.type == TYPE_OFS_DELTA) {
+            ByteBuffer prefix = ByteBuffer.allocate((int) Math.min(entry.compressedLength, MAX_ENTRY_HEADER));
+            readFully(prefix, entry.dataOffset);
+            byte[] sizes = compressor.inflateHeader(prefix.array(), prefix.capacity());
+            int[] pos = {0};
+            Delta.readVarint(sizes, pos);
+            size = Delta.readVarint(sizes, pos);
+        }
+        while (entry.type == TYPE_OFS_DELTA) {
+            entry = readEntryHeader(entry.baseOffset);
+        }
+        return new Repository.ObjectHeader(typeName(entry.type), size);
+    }
+
+    public InputStream openStream(byte[] hash) throws IOException {
+        // Streams a whole object's content without loading it; deltas are never taken
+        // against large objects, so null is returned for them and callers read the object instead
+        long offset = index.findOffset(hash);
+        if (offset < 0) {
+            return null;
+        }
+        Entry entry = readEntryHeader(offset);
+        if (entry.type == TYPE_OFS_DELTA) {
+            return null;
+        }
+        return new InflaterInputStream(new ChannelInputStream(entry.dataOffset, entry.compressedLength));
+    }
+
+    private GitObject readAt(long offset) throws IOException {
+        GitObject cached = baseCache.get(offset);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Walk down to the nearest cached or non-delta base, then apply deltas back up
+        Deque<Entry> chain = new ArrayDeque<>();
+        Entry entry = readEntryHeader(offset);
+        GitObject base = null;
+        while (entry.type == TYPE_OFS_DELTA) {
+            chain.push(entry);
+            base = baseCache.get(entry.baseOffset);
+            if (base != null) {
+                break;
+            }
+            entry = readEntryHeader(entry.baseOffset);
+        }
+        if (base == null) {
+            base = new GitObject(typeName(entry.type), inflate(entry));
+            if (!chain.isEmpty()) {
+                baseCache.put(entry.offset, base);
+            }
+        }
+
+        while (!chain.isEmpty()) {
+            Entry delta = chain.pop();
+            byte[] data = Delta.apply(base.getBytes(), inflate(delta));
+            base = new GitObject(base.getType(), data);
+            if (!chain.isEmpty()) {
+                baseCache.put(delta.offset, base);
+            }
+        }
+        return base;
+    }
+
+    private Entry readEntryHeader(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_ENTRY_HEADER);
+        int read = channel.read(buffer, offset);
+        if (read <= 0) {
+            throw new IOException("Truncated pack entry at " + offset + " in " + packPath);
+        }
+        byte[] header = Arrays.copyOf(buffer.array(), read);
+
+        Entry entry = new Entry();
+        entry.offset = offset;
+        entry.type = header[0];
+        int[] pos = {1};
+        entry.size = Delta.readVarint(header, pos);
+        if (entry.type == TYPE_OFS_DELTA) {
+            entry.baseOffset = offset - Delta.readVarint(header, pos);
+        }
+        entry.compressedLength = Delta.readVarint(header, pos);
+        entry.dataOffset = offset + pos[0];
+        return entry;
+    }
+
+    private byte[] inflate(Entry entry) throws IOException {
+        if (entry.size > Integer.MAX_VALUE || entry.compressedLength > Integer.MAX_VALUE) {
+            throw new IOException("Pack entry too large to load into memory");
+        }
+        ByteBuffer compressed = ByteBuffer.allocate((int) entry.compressedLength);
+        readFully(compressed, entry.dataOffset);
+        return compressor.inflateRaw(compressed.array(), (int) entry.size);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of pack file: " + packPath);
+            }
+        }
+    }
+
+    public static int typeCode(String type) {
+        switch (type) {
+            case "commit":
+                return TYPE_COMMIT;
+            case "tree":
+                return TYPE_TREE;
+            case "blob":
+                return TYPE_BLOB;
+            default:
+                throw new IllegalArgumentException("Unknown object type: " + type);
+        }
+    }
+
+    public static String typeName(int code) throws IOException {
+        switch (code) {
+            case TYPE_COMMIT:
+                return "commit";
+            case TYPE_TREE:
+                return "tree";
+            case TYPE_BLOB:
+                return "blob";
+            default:
+                throw new IOException("Unknown pack entry type: " + code);
+        }
+    }
+
+    public static String packName(byte[] checksum) {
+        return "pack-" + HashUtils.bytesToHex(checksum);
+    }
+
+    public static byte[] magicHeader(int count) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).putInt(VERSION).putInt(count);
+        return header.array();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return packPath.getFileName().toString();
+    }
+
+    private class ChannelInputStream extends InputStream {
+        // Positional reads, so concurrent readers of the shared channel do not disturb each other
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(long position, long length) {
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of pack file: " + packPath);
+            }
+            position += count;
+            remaining -= count;
+            return count;
+        }
+    }
+
+    private static class Entry {
+        long offset;
+        int type;
+        long size;
+        long baseOffset;
+        long compressedLength;
+        long dataOffset;
+    }
+}
@@ -0,0 +1,158 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+public class PackIndex {
+    // Layout:
+    //   "CIDX", int version
+    //   int[256] fanout (cumulative object counts by first hash byte)
+    //   count * 32-byte raw hashes, sorted
+    //   count * 8-byte pack offsets
+    //   32-byte pack checksum, 32-byte checksum of everything above
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'C', 'I', 'D', 'X'};
+    private static final int HASH_SIZE = 32;
+    private static final int FANOUT_OFFSET = 8;
+    private static final int HASHES_OFFSET = FANOUT_OFFSET + 256 * 4;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int offsetsOffset;
+
+    private PackIndex(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.capacity() < HASHES_OFFSET + 2 * HASH_SIZE) {
+            throw new IOException("Pack index too short: " + path);
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a pack index: " + path);
+            }
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported pack index version in " + path);
+        }
+
+        this.count = buffer.getInt(FANOUT_OFFSET + 255 * 4);
+        this.offsetsOffset = HASHES_OFFSET + count * HASH_SIZE;
+        if (buffer.capacity() != offsetsOffset + count * 8 + 2 * HASH_SIZE) {
+            throw new IOException("Pack index size mismatch: " + path);
+        }
+    }
+
+    public static PackIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new PackIndex(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getObjectCount() {
+        return count;
+    }
+
+    public long findOffset(byte[] hash) {
+        int first = hash[0] & 0xff;
+        int low = first == 0 ? 0 : buffer.getInt(FANOUT_OFFSET + (first - 1) * 4);
+        int high = buffer.getInt(FANOUT_OFFSET + first * 4) - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareAt(mid, hash);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getLong(offsetsOffset + mid * 8);
+            }
+        }
+        return -1;
+    }
+
+    public String getHash(int position) {
+        byte[] hash = new byte[HASH_SIZE];
+        int base = HASHES_OFFSET + position * HASH_SIZE;
+        for (int i = 0; i < HASH_SIZE; i++) {
+            hash[i] = buffer.get(base + i);
+        }
+        return HashUtils.bytesToHex(hash);
+    }
+
+    public long getOffset(int position) {
+        return buffer.getLong(offsetsOffset + position * 8);
+    }
+
+    public byte[] getPackChecksum() {
+        byte[] checksum = new byte[HASH_SIZE];
+        int base = offsetsOffset + count * 8;
+        for (int i = 0; i < HASH_SIZE; i++) {
+            checksum[i] = buffer.get(base + i);
+        }
+        return checksum;
+    }
+
+    private int compareAt(int position, byte[] hash) {
+        int base = HASHES_OFFSET + position * HASH_SIZE;
+        for (int i = 0; i < HASH_SIZE; i++) {
+            int a = buffer.get(base + i) & 0xff;
+            int b = hash[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    public static void write(Path path, List<String> hashes, List<Long> offsets, byte[] packChecksum) throws IOException {
+        Integer[] order = new Integer[hashes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(hashes::get));
+
+        MessageDigest digest = HashUtils.newSha256();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new DigestOutputStream(Files.newOutputStream(path), digest)))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+
+            int[] fanout = new int[256];
+            for (String hash : hashes) {
+                fanout[Integer.parseInt(hash.substring(0, 2), 16)]++;
+            }
+            int total = 0;
+            for (int i = 0; i < 256; i++) {
+                total += fanout[i];
+                out.writeInt(total);
+            }
+
+            for (Integer i : order) {
+                out.write(HashUtils.hexToBytes(hashes.get(i)));
+            }
+            for (Integer i : order) {
+                out.writeLong(offsets.get(i));
+            }
+            out.write(packChecksum);
+            out.flush();
+            out.write(digest.digest());
+        }
+    }
+}
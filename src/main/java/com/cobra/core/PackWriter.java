@@ -0,0 +1,202 @@
+package com.cobra.core;
+
+import com.cobra.utils.HashUtils;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+public class PackWriter {
+    private static final int WINDOW = 10;
+    private static final int MAX_DEPTH = 50;
+    // Objects above this size are stored whole, delta search on them costs more than it saves
+    private static final int MAX_DELTA_SOURCE = 16 * 1024 * 1024;
+
+    private final Repository repo;
+    private final ObjectCompressor compressor;
+    private int deltaCount;
+
+    public PackWriter(Repository repo, ObjectCompressor compressor) {
+        this.repo = repo;
+        this.compressor = compressor;
+    }
+
+    public int getDeltaCount() {
+        return deltaCount;
+    }
+
+    public Path write(Collection<String> hashes, Path packDir) throws IOException {
+        // First pass: only read type and size from the object headers, so memory stays bounded by the window
+        List<ObjectInfo> objects = new ArrayList<>(hashes.size());
+        for (String hash : hashes) {
+            Repository.ObjectHeader header = repo.readObjectHeader(hash);
+            objects.add(new ObjectInfo(hash, PackFile.typeCode(header.getType()), header.getSize()));
+        }
+
+        // Similar objects end up next to each other, bigger ones first so deltas mostly remove data
+        objects.sort(Comparator.<ObjectInfo>comparingInt(o -> o.type)
+                .thenComparing(o -> -o.size));
+
+        Files.createDirectories(packDir);
+        Path tempPack = Files.createTempFile(packDir, "tmp_pack_", null);
+        Path tempIdx = Files.createTempFile(packDir, "tmp_idx_", null);
+        try {
+            List<String> written = new ArrayList<>(objects.size());
+            List<Long> offsets = new ArrayList<>(objects.size());
+            MessageDigest digest = HashUtils.newSha256();
+            byte[] checksum;
+
+            try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(Files.newOutputStream(tempPack), digest)))) {
+                out.write(PackFile.magicHeader(objects.size()));
+
+                Deque<WindowEntry> window = new ArrayDeque<>();
+                for (ObjectInfo info : objects) {
+                    long offset = out.getCount();
+                    if (info.size > MAX_DELTA_SOURCE) {
+                        // Never a delta base or target, and possibly too large for a byte array
+                        writeStreamedEntry(out, info, packDir);
+                        written.add(info.hash);
+                        offsets.add(offset);
+                        continue;
+                    }
+                    byte[] data = repo.readObject(info.hash).getBytes();
+
+                    WindowEntry base = null;
+                    byte[] bestDelta = null;
+                    for (WindowEntry candidate : window) {
+                        if (candidate.type != info.type || candidate.depth >= MAX_DEPTH) {
+                            continue;
+                        }
+                        // A much smaller base cannot describe most of the target
+                        if (candidate.data.length < data.length / 8) {
+                            continue;
+                        }
+                        byte[] delta = Delta.create(candidate.data, data);
+                        int limit = bestDelta != null ? bestDelta.length : data.length / 2 - 20;
+                        if (delta.length < limit) {
+                            bestDelta = delta;
+                            base = candidate;
+                        }
+                    }
+
+                    int depth = 0;
+                    if (bestDelta != null) {
+                        writeEntry(out, PackFile.TYPE_OFS_DELTA, bestDelta, offset - base.offset);
+                        depth = base.depth + 1;
+                        deltaCount++;
+                    } else {
+                        writeEntry(out, info.type, data, 0);
+                    }
+                    written.add(info.hash);
+                    offsets.add(offset);
+
+                    window.addFirst(new WindowEntry(info.type, data, offset, depth));
+                    if (window.size() > WINDOW) {
+                        window.removeLast();
+                    }
+                }
+                out.flush();
+                checksum = digest.digest();
+                out.write(checksum);
+            }
+
+            String name = PackFile.packName(checksum);
+            PackIndex.write(tempIdx, written, offsets, checksum);
+
+            // The index is moved last so readers never see an index without its pack
+            Path packPath = packDir.resolve(name + ".pack");
+            Path idxPath = packDir.resolve(name + ".idx");
+            Files.move(tempPack, packPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempIdx, idxPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return idxPath;
+        } finally {
+            Files.deleteIfExists(tempPack);
+            Files.deleteIfExists(tempIdx);
+        }
+    }
+
+    private void writeEntry(CountingOutputStream out, int type, byte[] data, long baseDistance) throws IOException {
+        byte[] compressed = compressor.deflate(data);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(24);
+        header.write(type);
+        Delta.writeVarint(header, data.length);
+        if (type == PackFile.TYPE_OFS_DELTA) {
+            Delta.writeVarint(header, baseDistance);
+        }
+        Delta.writeVarint(header, compressed.length);
+        header.writeTo(out);
+        out.write(compressed);
+    }
+
+    private void writeStreamedEntry(CountingOutputStream out, ObjectInfo info, Path packDir) throws IOException {
+        // The entry header needs the compressed length up front, so deflate into a temp file first
+        Path temp = Files.createTempFile(packDir, "tmp_obj_", null);
+        try {
+            try (InputStream in = repo.openObjectStream(ObjectId.fromHex(info.hash));
+                 OutputStream deflated = compressor.deflating(Files.newOutputStream(temp))) {
+                in.transferTo(deflated);
+            }
+            ByteArrayOutputStream header = new ByteArrayOutputStream(24);
+            header.write(info.type);
+            Delta.writeVarint(header, info.size);
+            Delta.writeVarint(header, Files.size(temp));
+            header.writeTo(out);
+            Files.copy(temp, out);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static class ObjectInfo {
+        final String hash;
+        final int type;
+        final long size;
+
+        ObjectInfo(String hash, int type, long size) {
+            this.hash = hash;
+            this.type = type;
+            this.size = size;
+        }
+    }
+
+    private static class WindowEntry {
+        final int type;
+        final byte[] data;
+        final long offset;
+        final int depth;
+
+        WindowEntry(int type, byte[] data, long offset, int depth) {
+            this.type = type;
+            this.data = data;
+            this.offset = offset;
+            this.depth = depth;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
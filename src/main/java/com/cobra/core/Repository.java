@@ -1,28 +1,49 @@
 package com.cobra.core;
 
-import com.cobra.utils.HashUtils;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cobra.utils.HashAlgorithm;
+import com.cobra.utils.ObjectHasher;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
 
 public class Repository {
     private Path rootPath;
     private Path cobraDir;
     private Index index;
     private RefStore refStore;
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private Config config;
+    private ObjectCompressor compressor;
+    private HashAlgorithm hashAlgorithm;
+    private FileMonitor fileMonitor;
+    private static final long DEFAULT_DELTA_CACHE_LIMIT = 32L * 1024 * 1024;
+    private static final long DEFAULT_OBJECT_CACHE_LIMIT = 64L * 1024 * 1024;
+    private List<PackFile> packs;
+    // Objects are immutable and content-addressed, so cached entries never go stale
+    private ObjectCache<ObjectId> objectCache;
 
     public Repository(Path rootPath) {
         this.rootPath = rootPath;
         this.cobraDir = rootPath.resolve(".cobra");
         this.index = new Index();
         this.refStore = new RefStore(cobraDir);
+        this.config = new Config(cobraDir.resolve("config"));
+        this.compressor = new ObjectCompressor(Deflater.DEFAULT_COMPRESSION);
+        this.hashAlgorithm = HashAlgorithm.SHA256;
+        this.objectCache = new ObjectCache<>(DEFAULT_OBJECT_CACHE_LIMIT);
     }
 
     public static Repository init(String path) throws IOException {
+        return init(path, HashAlgorithm.SHA256);
+    }
+
+    public static Repository init(String path, HashAlgorithm hashAlgorithm) throws IOException {
         Path rootPath = Paths.get(path);
         Path cobraDir = rootPath.resolve(".cobra");
         
@@ -38,6 +59,12 @@ public class Repository {
         );
 
         Repository repo = new Repository(rootPath);
+        repo.hashAlgorithm = hashAlgorithm;
+        
+        // Write default configuration; the hash algorithm is fixed for the repository's lifetime
+        repo.config.set(Config.COMPRESSION_LEVEL, String.valueOf(Deflater.DEFAULT_COMPRESSION));
+        repo.config.set(Config.HASH_ALGORITHM, hashAlgorithm.getName());
+        repo.config.save();
         
         // Initialize refs
         repo.refStore.createInitialRefs();
@@ -62,6 +89,14 @@ public class Repository {
         }
 
         Repository repo = new Repository(rootPath);
+        repo.config = Config.load(cobraDir);
+        repo.compressor = new ObjectCompressor(
+            repo.config.getInt(Config.COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION));
+        // Repositories created before the setting existed use SHA-256
+        repo.hashAlgorithm = HashAlgorithm.fromName(
+            repo.config.get(Config.HASH_ALGORITHM, HashAlgorithm.SHA256.getName()));
+        repo.objectCache = new ObjectCache<>(
+            repo.config.getLong(Config.OBJECT_CACHE_LIMIT, DEFAULT_OBJECT_CACHE_LIMIT));
         
         // Try to load existing index
         repo.index = Index.load(repo);
@@ -74,31 +109,90 @@ public class Repository {
         saveIndex();
     }
 
+    public IndexTransaction beginIndexTransaction() {
+        return new IndexTransaction(this);
+    }
+
     public void saveIndex() throws IOException {
         Path indexPath = cobraDir.resolve("index");
         index.writeToFile(indexPath);
     }
 
     public String writeObject(GitObject object) throws IOException {
-        // Hash the full content (header + content)
-        String fullContent = object.getFullContent();
-        String hash = HashUtils.sha256(fullContent);
-        Path objectPath = cobraDir.resolve("objects").resolve(hash.substring(0, 2));
-        Files.createDirectories(objectPath);
+        return insertObject(object).toHex();
+    }
+
+    public ObjectId insertObject(GitObject object) throws IOException {
+        // Hash header and content in place, without building the concatenated copy
+        byte[] header = object.getHeader();
+        ObjectHasher hasher = hashAlgorithm.threadHasher();
+        hasher.update(header);
+        hasher.update(object.getData());
+        ObjectId id = ObjectId.fromRaw(hasher.digest());
         
-        Path objectFile = objectPath.resolve(hash.substring(2));
-        Files.write(objectFile, fullContent.getBytes());
+        // Objects are content-addressed, an existing copy already holds these bytes
+        if (hasObject(id)) {
+            return id;
+        }
         
-        return hash;
+        Path objectFile = getObjectPath(id);
+        Files.createDirectories(objectFile.getParent());
+        Path tempFile = Files.createTempFile(objectFile.getParent(), "tmp_obj_", null);
+        try {
+            try (OutputStream out = compressor.deflating(Files.newOutputStream(tempFile))) {
+                out.write(header);
+                out.write(object.rawData(), object.rawOffset(), object.getSize());
+            }
+            moveIntoPlace(tempFile, objectFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        
+        return id;
     }
 
     public GitObject readObject(String hash) throws IOException {
-        Path objectPath = cobraDir.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+        return readObject(toId(hash));
+    }
+
+    public GitObject readObject(ObjectId id) throws IOException {
+        GitObject cached = objectCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        
+        GitObject object = loadObject(id);
+        objectCache.put(id, object);
+        return object;
+    }
+    
+    private GitObject loadObject(ObjectId id) throws IOException {
+        // Packed objects are found through the pack indexes without touching loose files
+        if (!getPacks().isEmpty()) {
+            byte[] rawHash = id.getRaw();
+            for (PackFile pack : getPacks()) {
+                GitObject object = pack.readObject(rawHash);
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+        
+        Path objectPath = getObjectPath(id);
         if (!Files.exists(objectPath)) {
-            throw new IOException("Object not found: " + hash);
+            throw new IOException("Object not found: " + id);
         }
         
-        String content = new String(Files.readAllBytes(objectPath));
+        byte[] content = Files.readAllBytes(objectPath);
+        
+        // Objects are stored zlib-deflated, older repositories may still hold raw ones
+        if (ObjectCompressor.isCompressed(content, content.length)) {
+            try {
+                return GitObject.fromContent(compressor.inflate(content));
+            } catch (IOException | IllegalArgumentException e) {
+                // Fall through and treat it as an uncompressed object
+            }
+        }
         
         // Try to parse as Git object format first (new format)
         try {
@@ -111,48 +205,413 @@ public class Repository {
         }
     }
     
-    private String determineObjectType(String content) {
+    public String readObjectType(String hash) throws IOException {
+        return readObjectType(toId(hash));
+    }
+    
+    public String readObjectType(ObjectId id) throws IOException {
+        GitObject cached = objectCache.peek(id);
+        if (cached != null) {
+            return cached.getType();
+        }
+        
+        if (!getPacks().isEmpty()) {
+            byte[] rawHash = id.getRaw();
+            for (PackFile pack : getPacks()) {
+                String type = pack.readObjectType(rawHash);
+                if (type != null) {
+                    return type;
+                }
+            }
+        }
+        
+        Path objectPath = getObjectPath(id);
+        if (!Files.exists(objectPath)) {
+            throw new IOException("Object not found: " + id);
+        }
+        
+        // Only the header is needed, so avoid reading the whole object
+        byte[] prefix = new byte[256];
+        int length;
+        try (InputStream in = Files.newInputStream(objectPath)) {
+            length = in.readNBytes(prefix, 0, prefix.length);
+        }
+        
+        String type = null;
+        if (ObjectCompressor.isCompressed(prefix, length)) {
+            try {
+                byte[] header = compressor.inflateHeader(prefix, length);
+                type = GitObject.parseType(header, header.length);
+            } catch (IOException e) {
+                type = null;
+            }
+        }
+        if (type == null) {
+            type = GitObject.parseType(prefix, length);
+        }
+        return type != null ? type : readObject(id).getType();
+    }
+    
+    public ObjectHeader readObjectHeader(String hash) throws IOException {
+        return readObjectHeader(toId(hash));
+    }
+    
+    public ObjectHeader readObjectHeader(ObjectId id) throws IOException {
+        // Type and size without loading the content, for objects of any size
+        GitObject cached = objectCache.peek(id);
+        if (cached != null) {
+            return new ObjectHeader(cached.getType(), cached.getSize());
+        }
+        
+        if (!getPacks().isEmpty()) {
+            byte[] rawHash = id.getRaw();
+            for (PackFile pack : getPacks()) {
+                ObjectHeader header = pack.readObjectHeader(rawHash);
+                if (header != null) {
+                    return header;
+                }
+            }
+        }
+        
+        Path objectPath = getObjectPath(id);
+        if (!Files.exists(objectPath)) {
+            throw new IOException("Object not found: " + id);
+        }
+        byte[] prefix = new byte[256];
+        int length;
+        try (InputStream in = Files.newInputStream(objectPath)) {
+            length = in.readNBytes(prefix, 0, prefix.length);
+        }
+        byte[] header = prefix;
+        if (ObjectCompressor.isCompressed(prefix, length)) {
+            try {
+                header = compressor.inflateHeader(prefix, length);
+                length = header.length;
+            } catch (IOException e) {
+                header = prefix;
+            }
+        }
+        String type = GitObject.parseType(header, length);
+        long size = GitObject.parseSize(header, length);
+        if (type == null || size < 0) {
+            // Old raw objects carry no header
+            GitObject object = readObject(id);
+            return new ObjectHeader(object.getType(), object.getSize());
+        }
+        return new ObjectHeader(type, size);
+    }
+    
+    public InputStream openObjectStream(ObjectId id) throws IOException {
+        // The object's content as a stream, so that objects too large for a byte array can be copied
+        if (!getPacks().isEmpty()) {
+            byte[] rawHash = id.getRaw();
+            for (PackFile pack : getPacks()) {
+                if (pack.contains(rawHash)) {
+                    InputStream in = pack.openStream(rawHash);
+                    return in != null ? in : new ByteArrayInputStream(readObject(id).getBytes());
+                }
+            }
+        }
+        
+        Path objectPath = getObjectPath(id);
+        byte[] prefix = new byte[2];
+        int length;
+        try (InputStream probe = Files.newInputStream(objectPath)) {
+            length = probe.readNBytes(prefix, 0, prefix.length);
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(objectPath));
+        if (ObjectCompressor.isCompressed(prefix, length)) {
+            in = new InflaterInputStream(in);
+        }
+        // Skip the "<type> <size>\0" header
+        int b;
+        while ((b = in.read()) > 0) {
+            if (b != ' ' && (b < '0' || b > '9') && (b < 'a' || b > 'z')) {
+                in.close();
+                return new ByteArrayInputStream(readObject(id).getBytes());
+            }
+        }
+        if (b < 0) {
+            in.close();
+            return new ByteArrayInputStream(readObject(id).getBytes());
+        }
+        return in;
+    }
+    
+    public boolean hasObject(String hash) throws IOException {
+        return hasObject(toId(hash));
+    }
+    
+    public boolean hasObject(ObjectId id) throws IOException {
+        if (!getPacks().isEmpty()) {
+            byte[] rawHash = id.getRaw();
+            for (PackFile pack : getPacks()) {
+                if (pack.contains(rawHash)) {
+                    return true;
+                }
+            }
+        }
+        return Files.exists(getObjectPath(id));
+    }
+    
+    private static ObjectId toId(String hash) throws IOException {
+        if (!ObjectId.isId(hash)) {
+            throw new IOException("Object not found: " + hash);
+        }
+        return ObjectId.fromHex(hash);
+    }
+    
+    public Set<String> listLooseObjects() throws IOException {
+        Set<String> hashes = new TreeSet<>();
+        Path objectsDir = cobraDir.resolve("objects");
+        if (!Files.isDirectory(objectsDir)) {
+            return hashes;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(objectsDir)) {
+            for (Path dir : dirs) {
+                String prefix = dir.getFileName().toString();
+                if (prefix.length() != 2 || !Files.isDirectory(dir)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (!name.startsWith("tmp_")) {
+                            hashes.add(prefix + name);
+                        }
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+    
+    public synchronized List<PackFile> getPacks() throws IOException {
+        if (packs == null) {
+            List<PackFile> loaded = new ArrayList<>();
+            Path packDir = getPackDir();
+            if (Files.isDirectory(packDir)) {
+                long cacheLimit = config.getLong(Config.DELTA_CACHE_LIMIT, DEFAULT_DELTA_CACHE_LIMIT);
+                try (Stream<Path> files = Files.list(packDir)) {
+                    Iterator<Path> it = files.filter(p -> p.getFileName().toString().endsWith(".idx"))
+                                             .sorted()
+                                             .iterator();
+                    while (it.hasNext()) {
+                        loaded.add(PackFile.open(it.next(), compressor, cacheLimit));
+                    }
+                }
+            }
+            packs = loaded;
+        }
+        return packs;
+    }
+    
+    public synchronized PackStats repack() throws IOException {
+        // Gather every reachable-or-not object, loose and already packed
+        Set<String> loose = listLooseObjects();
+        Set<String> all = new TreeSet<>(loose);
+        List<PackFile> oldPacks = getPacks();
+        for (PackFile pack : oldPacks) {
+            PackIndex idx = pack.getIndex();
+            for (int i = 0; i < idx.getObjectCount(); i++) {
+                all.add(idx.getHash(i));
+            }
+        }
+        if (all.isEmpty()) {
+            return new PackStats(0, 0, null);
+        }
+        
+        PackWriter writer = new PackWriter(this, compressor);
+        Path idxPath = writer.write(all, getPackDir());
+        
+        // Everything now lives in the new pack, drop the old copies
+        for (PackFile pack : oldPacks) {
+            pack.close();
+            if (!pack.getIndex().getPath().equals(idxPath)) {
+                Files.deleteIfExists(pack.getIndex().getPath());
+                Files.deleteIfExists(pack.getPackPath());
+            }
+        }
+        packs = null;
+        for (String hash : loose) {
+            Path objectFile = getObjectPath(hash);
+            Files.deleteIfExists(objectFile);
+            try {
+                Files.deleteIfExists(objectFile.getParent());
+            } catch (DirectoryNotEmptyException e) {
+                // Other objects share this fan-out directory
+            }
+        }
+        
+        return new PackStats(all.size(), writer.getDeltaCount(), idxPath);
+    }
+    
+    private Path getPackDir() {
+        return cobraDir.resolve("objects").resolve("pack");
+    }
+    
+    private Path getObjectPath(String hash) {
+        return cobraDir.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+    
+    private Path getObjectPath(ObjectId id) {
+        return getObjectPath(id.toHex());
+    }
+    
+    private String determineObjectType(byte[] content) {
         // Simple heuristics to determine object type
-        if (content.startsWith("tree ")) {
+        if (startsWith(content, "tree ")) {
             return "commit";
-        } else if (content.contains("\0")) {
-            return "tree";
-        } else {
-            return "blob";
         }
+        for (byte b : content) {
+            if (b == 0) {
+                return "tree";
+            }
+        }
+        return "blob";
+    }
+    
+    private static boolean startsWith(byte[] content, String prefix) {
+        if (content.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (content[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public String createCommit(String message, String treeHash, String parentHash) throws IOException {
+        List<String> parents = parentHash != null && !parentHash.isEmpty()
+            ? Collections.singletonList(parentHash) : Collections.emptyList();
+        return createCommit(message, treeHash, parents);
+    }
+
+    public String createCommit(String message, String treeHash, List<String> parents) throws IOException {
+        return createCommit(message, treeHash, parents, Commit.PersonIdent.now("Jobra", "cobra@example.com"));
+    }
+
+    public String createCommit(String message, String treeHash, List<String> parents,
+                               Commit.PersonIdent ident) throws IOException {
         StringBuilder commitContent = new StringBuilder();
         commitContent.append("tree ").append(treeHash).append("\n");
         
-        if (parentHash != null && !parentHash.isEmpty()) {
-            commitContent.append("parent ").append(parentHash).append("\n");
+        for (String parent : parents) {
+            commitContent.append("parent ").append(parent).append("\n");
         }
         
-        commitContent.append("author Jobra <cobra@example.com> ")
-                    .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                    .append("\n");
-        commitContent.append("committer Jobra <cobra@example.com> ")
-                    .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
-                    .append("\n\n");
+        commitContent.append("author ").append(ident).append("\n");
+        commitContent.append("committer ").append(ident).append("\n\n");
         commitContent.append(message).append("\n");
 
         GitObject commit = new GitObject("commit", commitContent.toString());
-        return writeObject(commit);
+        String hash = writeObject(commit);
+        
+        // Append the new commit to the commit-graph without reading it back
+        CommitGraphWriter graphWriter = new CommitGraphWriter(this);
+        graphWriter.add(hash, treeHash, parents, ident.getWhen());
+        graphWriter.update(Collections.singletonList(hash));
+        return hash;
+    }
+
+    public CommitGraph getCommitGraph(Collection<String> tips) throws IOException {
+        // Commits made before the graph existed are added the first time they are needed
+        return new CommitGraphWriter(this).update(tips);
     }
 
     public String createTree(Tree tree) throws IOException {
+        return insertTree(tree).toHex();
+    }
+
+    public ObjectId insertTree(Tree tree) throws IOException {
         GitObject treeObj = new GitObject("tree", tree.toContent());
-        return writeObject(treeObj);
+        return insertObject(treeObj);
     }
 
     public String createBlob(Path filePath) throws IOException {
-        String content = new String(Files.readAllBytes(filePath));
-        GitObject blob = new GitObject("blob", content);
-        return writeObject(blob);
+        return insertBlob(filePath).toHex();
     }
 
+    public ObjectId insertBlob(Path filePath) throws IOException {
+        // Stream the file through a fixed-size buffer so that large files
+        // are hashed and stored in one pass without being held in memory
+        Path objectsDir = cobraDir.resolve("objects");
+        Files.createDirectories(objectsDir);
+        Path tempFile = Files.createTempFile(objectsDir, "tmp_obj_", null);
+        
+        ObjectHasher hasher = hashAlgorithm.threadHasher();
+        try {
+            try (OutputStream out = compressor.deflating(Files.newOutputStream(tempFile))) {
+                streamBlob(filePath, hasher, out);
+            }
+            
+            ObjectId id = ObjectId.fromRaw(hasher.digest());
+            if (hasObject(id)) {
+                return id;
+            }
+            Path objectFile = getObjectPath(id);
+            Files.createDirectories(objectFile.getParent());
+            moveIntoPlace(tempFile, objectFile);
+            return id;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    public String hashBlob(Path filePath) throws IOException {
+        return computeBlobId(filePath).toHex();
+    }
+    
+    public ObjectId computeBlobId(Path filePath) throws IOException {
+        // Same hash as insertBlob, without storing anything
+        ObjectHasher hasher = hashAlgorithm.threadHasher();
+        streamBlob(filePath, hasher, OutputStream.nullOutputStream());
+        return ObjectId.fromRaw(hasher.digest());
+    }
+    
+    private void streamBlob(Path filePath, ObjectHasher hasher, OutputStream out) throws IOException {
+        try (FileChannel in = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = in.size();
+            
+            byte[] header = ("blob " + size + "\0").getBytes(StandardCharsets.UTF_8);
+            hasher.update(header);
+            out.write(header);
+            
+            // BLAKE3 reads in larger slices so that it can hash them across cores
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, hashAlgorithm.getStreamBufferSize()));
+            long remaining = size;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = in.read(buffer);
+                if (read < 0) {
+                    throw new IOException("File changed while reading: " + filePath);
+                }
+                remaining -= read;
+                
+                hasher.update(buffer.array(), 0, read);
+                out.write(buffer.array(), 0, read);
+            }
+        }
+    }
+    
+    private static void moveIntoPlace(Path tempFile, Path objectFile) throws IOException {
+        if (Files.exists(objectFile)) {
+            Files.delete(tempFile);
+            return;
+        }
+        try {
+            Files.move(tempFile, objectFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another writer stored the same object first
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
     public Path getRootPath() {
         return rootPath;
     }
@@ -168,4 +627,67 @@ public class Repository {
     public RefStore getRefStore() {
         return refStore;
     }
-} 
+
+    public HashAlgorithm getHashAlgorithm() {
+        return hashAlgorithm;
+    }
+
+    public FileMonitor getFileMonitor() {
+        // Only set while a daemon keeps the repository open with core.fsmonitor enabled
+        return fileMonitor;
+    }
+
+    public void setFileMonitor(FileMonitor fileMonitor) {
+        this.fileMonitor = fileMonitor;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public ObjectCache<ObjectId> getObjectCache() {
+        return objectCache;
+    }
+
+    public static class ObjectHeader {
+        private final String type;
+        private final long size;
+        
+        public ObjectHeader(String type, long size) {
+            this.type = type;
+            this.size = size;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+    }
+    
+    public static class PackStats {
+        private final int objectCount;
+        private final int deltaCount;
+        private final Path indexPath;
+        
+        public PackStats(int objectCount, int deltaCount, Path indexPath) {
+            this.objectCount = objectCount;
+            this.deltaCount = deltaCount;
+            this.indexPath = indexPath;
+        }
+        
+        public int getObjectCount() {
+            return objectCount;
+        }
+        
+        public int getDeltaCount() {
+            return deltaCount;
+        }
+        
+        public Path getIndexPath() {
+            return indexPath;
+        }
+    }
+}
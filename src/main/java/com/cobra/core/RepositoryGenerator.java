@@ -0,0 +1,394 @@
+package com.cobra.core;
+
+import com.cobra.utils.FileStat;
+import com.cobra.utils.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RepositoryGenerator {
+    // Commit times start here and advance about an hour per commit, so output is reproducible
+    private static final long START_TIME = 1_600_000_000L;
+    private static final String[] DIR_NAMES = {
+        "src", "lib", "core", "util", "api", "model", "service", "test", "docs", "tools", "net", "io"
+    };
+    private static final String[] TEXT_EXTENSIONS = {".java", ".c", ".txt", ".md", ".json"};
+    private static final String[] WORDS = {
+        "return", "value", "index", "buffer", "count", "result", "final", "static", "public", "void",
+        "if", "else", "for", "while", "new", "this", "null", "true", "false", "int", "long", "string"
+    };
+
+    private final Repository repo;
+    private final Options options;
+    private final Random random;
+    private final Index index;
+    private final List<String> dirs = new ArrayList<>();
+    private final List<String> paths = new ArrayList<>();
+    private int nextFile;
+    private int commitCount;
+    private long bytesWritten;
+
+    private RepositoryGenerator(Repository repo, Options options) {
+        this.repo = repo;
+        this.options = options;
+        this.random = new Random(options.seed);
+        this.index = repo.getIndex();
+    }
+
+    public static Result generate(Path path, Options options) throws IOException {
+        Files.createDirectories(path);
+        Repository repo = Repository.init(path.toString(), options.hashAlgorithm);
+        RepositoryGenerator generator = new RepositoryGenerator(repo, options);
+        return generator.run();
+    }
+
+    private Result run() throws IOException {
+        createDirectories();
+
+        // The initial import holds every file; later commits only change a few of them
+        for (int i = 0; i < options.files; i++) {
+            addFile(true);
+        }
+        String head = commit("Initial import of " + options.files + " files", null);
+
+        // Side branches fork off main at evenly spaced points and take at most half the commits
+        int remaining = Math.max(0, options.commits - 1);
+        int sideBranches = Math.max(0, options.branches - 1);
+        int perBranch = sideBranches > 0 ? remaining / (2 * sideBranches) : 0;
+        int mainCommits = remaining - perBranch * sideBranches;
+        int forkEvery = sideBranches > 0 ? Math.max(1, mainCommits / (sideBranches + 1)) : 0;
+
+        int branch = 0;
+        for (int i = 0; i < mainCommits; i++) {
+            if (branch < sideBranches && i > 0 && i % forkEvery == 0) {
+                branch++;
+                generateBranch("topic-" + branch, head, perBranch);
+            }
+            head = commit(changeFiles(true), head);
+        }
+        while (branch < sideBranches) {
+            branch++;
+            generateBranch("topic-" + branch, head, perBranch);
+        }
+
+        repo.getRefStore().setBranchHead("main", head);
+        refreshStat();
+        repo.saveIndex();
+        if (options.pack) {
+            repo.repack();
+        }
+        return new Result(paths.size(), commitCount, options.branches, bytesWritten, head);
+    }
+
+    private void generateBranch(String name, String base, int commits) throws IOException {
+        // Side branches only modify existing files, which lets main's state be restored exactly
+        List<IndexEntry> saved = new ArrayList<>();
+        String head = base;
+        for (int i = 0; i < commits; i++) {
+            head = commit(modifyFiles(saved), head);
+        }
+        repo.getRefStore().createBranch(name, head);
+
+        for (int i = saved.size() - 1; i >= 0; i--) {
+            index.addEntry(saved.get(i));
+        }
+    }
+
+    private void createDirectories() {
+        // A tree of width subdirectories per level; files land in any of them
+        List<String> level = Collections.singletonList("");
+        dirs.add("");
+        for (int depth = 0; depth < options.depth; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String parent : level) {
+                for (int i = 0; i < options.width; i++) {
+                    String name = DIR_NAMES[random.nextInt(DIR_NAMES.length)] + i;
+                    next.add(parent.isEmpty() ? name : parent + "/" + name);
+                }
+            }
+            dirs.addAll(next);
+            level = next;
+        }
+    }
+
+    private String commit(String message, String parent) throws IOException {
+        String tree = new TreeBuilder(repo, index).build();
+        long when = START_TIME + commitCount * 3600L + random.nextInt(600);
+        Commit.PersonIdent ident = new Commit.PersonIdent("Jobra", "cobra@example.com", when, ZoneOffset.UTC);
+        List<String> parents = parent != null ? Collections.singletonList(parent) : Collections.emptyList();
+        commitCount++;
+        return repo.createCommit(message, tree, parents, ident);
+    }
+
+    private String changeFiles(boolean onMain) throws IOException {
+        // Mostly edits, with the occasional new or deleted file
+        int changes = Math.max(1, options.churn);
+        String first = null;
+        for (int i = 0; i < changes; i++) {
+            int kind = random.nextInt(20);
+            String path;
+            if (kind == 0 || paths.isEmpty()) {
+                path = addFile(onMain);
+            } else if (kind == 1 && paths.size() > 1) {
+                path = deleteFile();
+            } else {
+                path = modifyFile(paths.get(random.nextInt(paths.size())), onMain);
+            }
+            if (first == null) {
+                first = path;
+            }
+        }
+        return changes == 1 ? "Change " + first : "Change " + first + " and " + (changes - 1) + " more";
+    }
+
+    private String modifyFiles(List<IndexEntry> saved) throws IOException {
+        int changes = Math.max(1, options.churn);
+        String first = null;
+        for (int i = 0; i < changes; i++) {
+            String path = paths.get(random.nextInt(paths.size()));
+            saved.add(index.getEntry(path));
+            modifyFile(path, false);
+            if (first == null) {
+                first = path;
+            }
+        }
+        return "Change " + first + " on a side branch";
+    }
+
+    private String addFile(boolean onMain) throws IOException {
+        String dir = dirs.get(random.nextInt(dirs.size()));
+        boolean binary = random.nextDouble() < options.binaryRatio;
+        String name = "file" + nextFile++ + (binary ? ".bin" : TEXT_EXTENSIONS[random.nextInt(TEXT_EXTENSIONS.length)]);
+        String path = dir.isEmpty() ? name : dir + "/" + name;
+        byte[] data = binary ? binaryContent(options.binarySize) : textContent(textSize());
+        writeFile(path, data, onMain);
+        paths.add(path);
+        return path;
+    }
+
+    private String deleteFile() throws IOException {
+        // Swap-remove keeps deletion O(1); path order does not matter here
+        int position = random.nextInt(paths.size());
+        String path = paths.get(position);
+        paths.set(position, paths.get(paths.size() - 1));
+        paths.remove(paths.size() - 1);
+        index.removeEntry(path);
+        Files.deleteIfExists(repo.getRootPath().resolve(path));
+        return path;
+    }
+
+    private String modifyFile(String path, boolean onMain) throws IOException {
+        byte[] data;
+        if (path.endsWith(".bin")) {
+            data = binaryContent(options.binarySize);
+        } else {
+            data = editLines(repo.readObject(index.getEntry(path).getId()).getBytes());
+        }
+        writeFile(path, data, onMain);
+        return path;
+    }
+
+    private void writeFile(String path, byte[] data, boolean onMain) throws IOException {
+        ObjectId id = repo.insertObject(new GitObject("blob", data));
+        index.addEntry(new IndexEntry(path, id, "100644", data.length));
+        bytesWritten += data.length;
+
+        // Only main is checked out, side branches exist purely as objects
+        if (onMain) {
+            Path file = repo.getRootPath().resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+        }
+    }
+
+    private void refreshStat() throws IOException {
+        for (String path : paths) {
+            IndexEntry entry = index.getEntry(path);
+            entry.setStat(FileStat.of(repo.getRootPath().resolve(path)));
+        }
+    }
+
+    private int textSize() {
+        // Log-normal around the median, which matches the long tail of real source trees
+        double size = options.medianSize * Math.exp(random.nextGaussian());
+        return (int) Math.max(0, Math.min(options.maxSize, size));
+    }
+
+    private byte[] textContent(int size) {
+        StringBuilder text = new StringBuilder(size + 64);
+        while (text.length() < size) {
+            appendLine(text);
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] binaryContent(int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return data;
+    }
+
+    private byte[] editLines(byte[] old) {
+        // Replace a few consecutive lines, like a typical small change
+        String[] lines = new String(old, StandardCharsets.UTF_8).split("\n", -1);
+        int start = random.nextInt(lines.length);
+        int removed = Math.min(lines.length - start, random.nextInt(4));
+        int added = 1 + random.nextInt(4);
+
+        StringBuilder text = new StringBuilder(old.length + added * 48);
+        for (int i = 0; i < start; i++) {
+            text.append(lines[i]).append('\n');
+        }
+        for (int i = 0; i < added; i++) {
+            appendLine(text);
+        }
+        for (int i = start + removed; i < lines.length; i++) {
+            text.append(lines[i]);
+            if (i < lines.length - 1) {
+                text.append('\n');
+            }
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendLine(StringBuilder text) {
+        int indent = random.nextInt(4) * 4;
+        for (int i = 0; i < indent; i++) {
+            text.append(' ');
+        }
+        int words = 1 + random.nextInt(8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.append('\n');
+    }
+
+    public static class Options {
+        private long seed = 1;
+        private int files = 1000;
+        private int depth = 3;
+        private int width = 4;
+        private int medianSize = 4096;
+        private int maxSize = 1024 * 1024;
+        private double binaryRatio = 0.001;
+        private int binarySize = 8 * 1024 * 1024;
+        private int commits = 100;
+        private int branches = 1;
+        private int churn = 10;
+        private boolean pack;
+        private HashAlgorithm hashAlgorithm = HashAlgorithm.SHA256;
+
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Options files(int files) {
+            // Side branches need at least one file to modify
+            this.files = Math.max(1, files);
+            return this;
+        }
+
+        public Options depth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        public Options width(int width) {
+            this.width = Math.max(1, width);
+            return this;
+        }
+
+        public Options medianSize(int medianSize) {
+            this.medianSize = medianSize;
+            return this;
+        }
+
+        public Options maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Options binaryRatio(double binaryRatio) {
+            this.binaryRatio = binaryRatio;
+            return this;
+        }
+
+        public Options binarySize(int binarySize) {
+            this.binarySize = binarySize;
+            return this;
+        }
+
+        public Options commits(int commits) {
+            this.commits = Math.max(1, commits);
+            return this;
+        }
+
+        public Options branches(int branches) {
+            this.branches = Math.max(1, branches);
+            return this;
+        }
+
+        public Options churn(int churn) {
+            this.churn = churn;
+            return this;
+        }
+
+        public Options pack(boolean pack) {
+            this.pack = pack;
+            return this;
+        }
+
+        public Options hashAlgorithm(HashAlgorithm hashAlgorithm) {
+            this.hashAlgorithm = hashAlgorithm;
+            return this;
+        }
+    }
+
+    public static class Result {
+        private final int files;
+        private final int commits;
+        private final int branches;
+        private final long bytes;
+        private final String head;
+
+        public Result(int files, int commits, int branches, long bytes, String head) {
+            this.files = files;
+            this.commits = commits;
+            this.branches = branches;
+            this.bytes = bytes;
+            this.head = head;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public int getCommits() {
+            return commits;
+        }
+
+        public int getBranches() {
+            return branches;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public String getHead() {
+            return head;
+        }
+    }
+}
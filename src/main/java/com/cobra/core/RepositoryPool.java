@@ -0,0 +1,209 @@
+package com.cobra.core;
+
+import com.cobra.utils.FileStat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class RepositoryPool {
+    // Installed by the daemon; without it every command opens its repository afresh
+    private static volatile RepositoryPool shared;
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+
+    public RepositoryPool(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public static void install(RepositoryPool pool) {
+        shared = pool;
+    }
+
+    public static Repository open(Path root) throws IOException {
+        RepositoryPool pool = shared;
+        return pool != null ? pool.get(root) : Repository.open(root.toString());
+    }
+
+    public static Path findRoot(Path dir) {
+        Path current = dir.toAbsolutePath().normalize();
+        while (current != null) {
+            if (Repository.exists(current.toString())) {
+                return current;
+            }
+            current = current.getParent();
+        }
+        return null;
+    }
+
+    public Lease lease(Path dir) {
+        // Commands on one repository run one at a time; different repositories run in parallel
+        Path root = findRoot(dir);
+        if (root == null) {
+            return new Lease(null);
+        }
+        Entry entry = lockEntry(root);
+        entry.validate();
+        return new Lease(entry);
+    }
+
+    public Repository get(Path root) throws IOException {
+        Entry entry = lockEntry(root.toAbsolutePath().normalize());
+        try {
+            return entry.open();
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    private Entry lockEntry(Path root) {
+        // An entry evicted while we waited for its lock is replaced rather than reused
+        while (true) {
+            Entry entry = entries.computeIfAbsent(root, Entry::new);
+            entry.lock.lock();
+            if (entries.get(root) == entry) {
+                return entry;
+            }
+            entry.lock.unlock();
+        }
+    }
+
+    public int evictIdle() {
+        // Entries in use are skipped, they are idle again once their command finishes
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastUsed < idleTimeoutMillis || !entry.lock.tryLock()) {
+                continue;
+            }
+            try {
+                entries.remove(entry.root, entry);
+                entry.stopMonitor();
+                evicted++;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public class Lease implements AutoCloseable {
+        private final Entry entry;
+        private boolean failed;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        public void fail() {
+            // The in-memory state may hold changes that never reached disk, so it is not reused
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            if (entry == null) {
+                return;
+            }
+            try {
+                if (failed) {
+                    entry.repository = null;
+                } else {
+                    entry.fingerprint = fingerprint(entry.root);
+                }
+                entry.lastUsed = System.currentTimeMillis();
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private static String fingerprint(Path root) {
+        // Changes made outside the daemon show up in the index, the config or the pack directory
+        Path cobraDir = root.resolve(".cobra");
+        return stat(cobraDir.resolve("index")) + ";" + stat(cobraDir.resolve("config")) + ";"
+            + stat(cobraDir.resolve("objects").resolve("pack"));
+    }
+
+    private static String stat(Path path) {
+        if (!Files.exists(path)) {
+            return "-";
+        }
+        try {
+            FileStat stat = FileStat.of(path);
+            return stat.getMtime() + ":" + stat.getInode() + ":" + stat.getSize();
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    private static class Entry {
+        private final Path root;
+        private final ReentrantLock lock = new ReentrantLock();
+        private Repository repository;
+        private FileMonitor monitor;
+        private String fingerprint;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Entry(Path root) {
+            this.root = root;
+        }
+
+        void validate() {
+            if (repository != null && !fingerprint(root).equals(fingerprint)) {
+                repository = null;
+            }
+        }
+
+        Repository open() throws IOException {
+            if (repository == null) {
+                repository = Repository.open(root.toString());
+                fingerprint = fingerprint(root);
+            }
+            updateMonitor();
+            return repository;
+        }
+
+        private void updateMonitor() {
+            // The monitor outlives reopened repositories, its token stays valid across them
+            if (!repository.getConfig().getBoolean(Config.FS_MONITOR, false)) {
+                stopMonitor();
+                repository.setFileMonitor(null);
+                return;
+            }
+            if (monitor == null || !monitor.isAlive()) {
+                stopMonitor();
+                try {
+                    monitor = FileMonitor.start(root);
+                } catch (IOException e) {
+                    // For example when out of inotify watches; commands fall back to full scans
+                    monitor = null;
+                }
+            }
+            repository.setFileMonitor(monitor);
+        }
+
+        void stopMonitor() {
+            if (monitor != null) {
+                try {
+                    monitor.close();
+                } catch (IOException e) {
+                    // Nothing is lost, the next monitor starts from a full scan
+                }
+                monitor = null;
+            }
+        }
+    }
+}
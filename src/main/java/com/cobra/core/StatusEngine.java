@@ -0,0 +1,301 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class StatusEngine {
+    // Compares HEAD with the index and the index with the working tree in one pass over the
+    // directory structure. Each directory is a fork-join task; subtrees whose cache-tree entry
+    // matches HEAD are not read from the object store. Results reach the listener in path order,
+    // one top-level directory at a time, on the calling thread.
+    public static final char UNMODIFIED = ' ';
+    public static final char ADDED = 'A';
+    public static final char MODIFIED = 'M';
+    public static final char DELETED = 'D';
+    public static final char UNTRACKED = '?';
+
+    private final Repository repo;
+    private final List<IndexEntry> entries;
+    private final CacheTree cacheTree;
+    private WorkingTreeChanges worktree;
+
+    public StatusEngine(Repository repo) {
+        this.repo = repo;
+        this.entries = repo.getIndex().getEntries();
+        this.cacheTree = repo.getIndex().getCacheTree();
+    }
+
+    public interface Listener {
+        // index is the HEAD-to-index change, worktree the index-to-working-tree change
+        void onChange(String path, char index, char worktree) throws IOException;
+
+        // Called whenever a run of changes is complete, a good moment to flush output
+        default void flush() throws IOException {
+        }
+    }
+
+    public void run(Listener listener) throws IOException {
+        worktree = WorkingTreeChanges.begin(repo);
+        ObjectId headTree = readHeadTree();
+
+        // The top level is split on the calling thread, so output can be written as soon as it is ordered
+        List<ForkJoinTask<List<Change>>> tasks = new ArrayList<>();
+        List<Child> files = new ArrayList<>();
+        for (Child child : children("", headTree, entries.size())) {
+            if (child.isDirectory()) {
+                if (!files.isEmpty()) {
+                    tasks.add(new FilesTask(files).fork());
+                    files = new ArrayList<>();
+                }
+                tasks.add(new DirectoryTask(child).fork());
+            } else {
+                files.add(child);
+            }
+        }
+        if (!files.isEmpty()) {
+            tasks.add(new FilesTask(files).fork());
+        }
+
+        try {
+            for (ForkJoinTask<List<Change>> task : tasks) {
+                for (Change change : task.join()) {
+                    listener.onChange(change.path, change.index, change.worktree);
+                }
+                listener.flush();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (ForkJoinTask<List<Change>> task : tasks) {
+                task.cancel(false);
+            }
+        }
+
+        for (String path : worktree.findUntracked()) {
+            listener.onChange(path, UNTRACKED, UNTRACKED);
+        }
+        listener.flush();
+        worktree.finish();
+    }
+
+    private ObjectId readHeadTree() throws IOException {
+        String head = repo.getRefStore().getHead();
+        if (head == null || head.isEmpty()) {
+            // Unborn branch: the branch file exists but names no commit yet
+            return null;
+        }
+        return ObjectId.fromHex(Commit.parse(repo.readObject(head)).getTreeHash());
+    }
+
+    private List<Child> children(String dir, ObjectId headTree, int count) throws IOException {
+        // The whole index when dir is the root; otherwise a directory child carries its range
+        return children(new Child(dir, true, null, headTree, 0, count));
+    }
+
+    private List<Child> children(Child parent) throws IOException {
+        // Merges the HEAD tree's entries with the index range, both in path order. A directory
+        // sorts as its name plus "/" on both sides, so "a.txt" comes before "a/".
+        String prefix = parent.path.isEmpty() ? "" : parent.path + "/";
+        boolean headSame = parent.headSame || matchesCacheTree(parent);
+        List<Child> index = new ArrayList<>();
+        int i = parent.from;
+        while (i < parent.to) {
+            IndexEntry entry = entries.get(i);
+            String rest = entry.getPath().substring(prefix.length());
+            int slash = rest.indexOf('/');
+            if (slash < 0) {
+                Child file = new Child(entry.getPath(), false, entry, null, i, i + 1);
+                file.headSame = headSame;
+                index.add(file);
+                i++;
+                continue;
+            }
+            String subPrefix = prefix + rest.substring(0, slash + 1);
+            int end = i + 1;
+            while (end < parent.to && entries.get(end).getPath().startsWith(subPrefix)) {
+                end++;
+            }
+            Child subdir = new Child(subPrefix.substring(0, subPrefix.length() - 1), true, null, null, i, end);
+            subdir.headSame = headSame;
+            index.add(subdir);
+            i = end;
+        }
+        if (headSame || parent.headTree == null) {
+            return index;
+        }
+
+        List<Child> merged = new ArrayList<>(index.size());
+        Tree.TreeParser head = new Tree.TreeParser(repo.readObject(parent.headTree));
+        int next = 0;
+        boolean hasHead = head.next();
+        while (hasHead || next < index.size()) {
+            Child child = next < index.size() ? index.get(next) : null;
+            String headPath = hasHead ? prefix + head.getName() : null;
+            int cmp = !hasHead ? 1 : child == null ? -1
+                : Index.comparePaths(head.isTree() ? headPath + "/" : headPath,
+                    child.isDirectory() ? child.path + "/" : child.path);
+            if (cmp < 0) {
+                merged.add(new Child(headPath, head.isTree(), null, head.getId(), 0, 0));
+                merged.get(merged.size() - 1).headMode = head.getRawMode();
+                hasHead = head.next();
+            } else if (cmp > 0) {
+                merged.add(child);
+                next++;
+            } else {
+                child.headTree = head.getId();
+                child.headMode = head.getRawMode();
+                merged.add(child);
+                next++;
+                hasHead = head.next();
+            }
+        }
+        return merged;
+    }
+
+    private boolean matchesCacheTree(Child dir) {
+        // The index still holds exactly the tree HEAD has for this directory
+        if (dir.headTree == null) {
+            return false;
+        }
+        CacheTree.Node node = cacheTree.get(dir.path);
+        return node != null && node.getEntryCount() == dir.to - dir.from && node.getId().equals(dir.headTree);
+    }
+
+    private Change compareFile(Child file) throws IOException {
+        if (file.entry == null) {
+            return new Change(file.path, DELETED, UNMODIFIED);
+        }
+        char index;
+        if (file.headSame) {
+            index = UNMODIFIED;
+        } else if (file.headTree == null) {
+            index = ADDED;
+        } else {
+            boolean same = file.headTree.equals(file.entry.getId())
+                && file.headMode == Integer.parseInt(file.entry.getMode(), 8);
+            index = same ? UNMODIFIED : MODIFIED;
+        }
+        char worktree = this.worktree.check(file.entry);
+        return index == UNMODIFIED && worktree == UNMODIFIED ? null : new Change(file.path, index, worktree);
+    }
+
+    private List<Change> compareDirectory(Child dir) throws IOException {
+        boolean headSame = dir.headSame || matchesCacheTree(dir);
+        if (headSame && !worktree.mayHaveChanges(dir.path)) {
+            return Collections.emptyList();
+        }
+        // Subdirectories run elsewhere while this task compares the directory's own files
+        List<Child> children = children(dir);
+        List<DirectoryTask> subdirs = new ArrayList<>();
+        for (Child child : children) {
+            if (child.isDirectory()) {
+                DirectoryTask task = new DirectoryTask(child);
+                task.fork();
+                subdirs.add(task);
+            }
+        }
+        Change[] files = new Change[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            if (!children.get(i).isDirectory()) {
+                files[i] = compareFile(children.get(i));
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+        int subdir = 0;
+        for (int i = 0; i < children.size(); i++) {
+            if (children.get(i).isDirectory()) {
+                changes.addAll(subdirs.get(subdir++).join());
+            } else if (files[i] != null) {
+                changes.add(files[i]);
+            }
+        }
+        return changes;
+    }
+
+    private static class Child {
+        final String path;
+        final boolean directory;
+        // The index entry of a file, null when only HEAD has it
+        final IndexEntry entry;
+        // The HEAD tree of a directory or blob of a file, null when only the index has it
+        ObjectId headTree;
+        int headMode;
+        // Entry range of a directory in the sorted index
+        final int from;
+        final int to;
+        // Set once an ancestor matched HEAD through the cache-tree
+        boolean headSame;
+
+        Child(String path, boolean directory, IndexEntry entry, ObjectId headTree, int from, int to) {
+            this.path = path;
+            this.directory = directory;
+            this.entry = entry;
+            this.headTree = headTree;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isDirectory() {
+            return directory;
+        }
+    }
+
+    private static class Change {
+        final String path;
+        final char index;
+        final char worktree;
+
+        Change(String path, char index, char worktree) {
+            this.path = path;
+            this.index = index;
+            this.worktree = worktree;
+        }
+    }
+
+    private class DirectoryTask extends RecursiveTask<List<Change>> {
+        private final Child dir;
+
+        DirectoryTask(Child dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<Change> compute() {
+            try {
+                return compareDirectory(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private class FilesTask extends RecursiveTask<List<Change>> {
+        private final List<Child> files;
+
+        FilesTask(List<Child> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected List<Change> compute() {
+            List<Change> changes = new ArrayList<>();
+            try {
+                for (Child file : files) {
+                    Change change = compareFile(file);
+                    if (change != null) {
+                        changes.add(change);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return changes;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.cobra.core;
 
+import com.cobra.utils.HashUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class Tree {
@@ -17,32 +21,70 @@ public class Tree {
         return new ArrayList<>(entries);
     }
 
-    public String toContent() {
-        StringBuilder content = new StringBuilder();
-        for (TreeEntry entry : entries) {
-            content.append(entry.getMode()).append(" ")
-                   .append(entry.getName()).append("\0")
-                   .append(entry.getHash());
+    public byte[] toContent() {
+        // Each entry is "<mode> <name>\0" followed by the raw 32-byte hash
+        List<TreeEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(ENTRY_ORDER);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream(sorted.size() * 64);
+        byte[] hash = new byte[ObjectId.RAW_SIZE];
+        for (TreeEntry entry : sorted) {
+            byte[] mode = entry.getMode().getBytes(StandardCharsets.US_ASCII);
+            byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+            content.write(mode, 0, mode.length);
+            content.write(' ');
+            content.write(name, 0, name.length);
+            content.write(0);
+            entry.getId().copyRawTo(hash, 0);
+            content.write(hash, 0, hash.length);
         }
-        return content.toString();
+        return content.toByteArray();
     }
 
-    public static Tree fromContent(String content) {
+    public static Tree fromContent(GitObject object) {
         Tree tree = new Tree();
-        // Parse tree content (simplified implementation)
-        // In a real implementation, you'd need to parse the binary format
+        TreeParser parser = new TreeParser(object);
+        while (parser.next()) {
+            tree.addEntry(parser.getEntry());
+        }
         return tree;
     }
 
+    // Git order: directories sort as if their name ended with '/'
+    public static final Comparator<TreeEntry> ENTRY_ORDER = (a, b) -> {
+        byte[] nameA = a.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] nameB = b.getName().getBytes(StandardCharsets.UTF_8);
+        return compareNames(nameA, 0, nameA.length, a.isTree(), nameB, 0, nameB.length, b.isTree());
+    };
+
+    public static int compareNames(byte[] a, int aOffset, int aLength, boolean aTree,
+                                   byte[] b, int bOffset, int bLength, boolean bTree) {
+        int length = Math.min(aLength, bLength);
+        for (int i = 0; i < length; i++) {
+            int ca = a[aOffset + i] & 0xff;
+            int cb = b[bOffset + i] & 0xff;
+            if (ca != cb) {
+                return ca - cb;
+            }
+        }
+        int ca = aLength > length ? a[aOffset + length] & 0xff : (aTree ? '/' : 0);
+        int cb = bLength > length ? b[bOffset + length] & 0xff : (bTree ? '/' : 0);
+        return ca - cb;
+    }
+
     public static class TreeEntry {
         private String mode;
         private String name;
-        private String hash;
+        private ObjectId id;
 
         public TreeEntry(String mode, String name, String hash) {
+            this(mode, name, ObjectId.fromHex(hash));
+        }
+
+        public TreeEntry(String mode, String name, ObjectId id) {
             this.mode = mode;
             this.name = name;
-            this.hash = hash;
+            this.id = id;
         }
 
         public String getMode() {
@@ -54,7 +96,158 @@ public class Tree {
         }
 
         public String getHash() {
-            return hash;
+            return id.toHex();
+        }
+
+        public ObjectId getId() {
+            return id;
+        }
+
+        public boolean isTree() {
+            return TreeBuilder.DIRECTORY_MODE.equals(mode);
+        }
+    }
+
+    public static class TreeParser {
+        // Walks entries in place over the object's bytes; nothing is allocated per
+        // entry unless a String accessor or getEntry() is called
+        private static final int HASH_SIZE = 32;
+
+        private final byte[] array;
+        private final int end;
+        private int position;
+        private int mode;
+        private int nameOffset;
+        private int nameLength;
+        private int hashOffset;
+
+        public TreeParser(GitObject object) {
+            this(object.rawData(), object.rawOffset(), object.getSize());
+        }
+
+        public TreeParser(byte[] array, int offset, int length) {
+            this.array = array;
+            this.position = offset;
+            this.end = offset + length;
+            if (isLegacyLayout(array, offset, end)) {
+                // Trees from before the binary layout held one flat list of file names without their
+                // directories, so paths cannot be recovered; they read as empty, like an unborn HEAD
+                position = end;
+            }
+        }
+
+        private static boolean isLegacyLayout(byte[] array, int offset, int end) {
+            // The old layout has 64 hex characters after the first name's NUL, followed by the end
+            // of the tree or the next entry's mode; a raw hash is almost never all hex characters
+            int nul = offset;
+            while (nul < end && array[nul] != 0) {
+                nul++;
+            }
+            int next = nul + 1 + 2 * HASH_SIZE;
+            if (next > end || (next < end && (array[next] < '0' || array[next] > '7'))) {
+                return false;
+            }
+            for (int i = nul + 1; i < next; i++) {
+                byte c = array[i];
+                if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean next() {
+            if (position >= end) {
+                return false;
+            }
+
+            int i = position;
+            int parsedMode = 0;
+            while (i < end && array[i] != ' ') {
+                int digit = array[i] - '0';
+                if (digit < 0 || digit > 7) {
+                    throw new IllegalArgumentException("Corrupt tree: invalid mode");
+                }
+                parsedMode = (parsedMode << 3) | digit;
+                i++;
+            }
+            int nameStart = i + 1;
+            int nul = nameStart;
+            while (nul < end && array[nul] != 0) {
+                nul++;
+            }
+            if (i >= end || nul >= end || nul + 1 + HASH_SIZE > end) {
+                throw new IllegalArgumentException("Corrupt tree: truncated entry");
+            }
+
+            mode = parsedMode;
+            nameOffset = nameStart;
+            nameLength = nul - nameStart;
+            hashOffset = nul + 1;
+            position = hashOffset + HASH_SIZE;
+            return true;
+        }
+
+        public int getRawMode() {
+            return mode;
+        }
+
+        public boolean isTree() {
+            return mode == 040000;
+        }
+
+        public String getMode() {
+            return Integer.toOctalString(mode);
+        }
+
+        public String getName() {
+            return new String(array, nameOffset, nameLength, StandardCharsets.UTF_8);
+        }
+
+        public int compareName(byte[] name, boolean tree) {
+            return compareNames(array, nameOffset, nameLength, isTree(), name, 0, name.length, tree);
+        }
+
+        public int compareName(TreeParser other) {
+            return compareNames(array, nameOffset, nameLength, isTree(),
+                other.array, other.nameOffset, other.nameLength, other.isTree());
+        }
+
+        public boolean nameEquals(byte[] name) {
+            if (name.length != nameLength) {
+                return false;
+            }
+            for (int i = 0; i < nameLength; i++) {
+                if (array[nameOffset + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public void copyHash(byte[] out) {
+            System.arraycopy(array, hashOffset, out, 0, HASH_SIZE);
+        }
+
+        public boolean hashEquals(TreeParser other) {
+            for (int i = 0; i < HASH_SIZE; i++) {
+                if (array[hashOffset + i] != other.array[other.hashOffset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public String getHash() {
+            return HashUtils.bytesToHex(array, hashOffset, HASH_SIZE);
+        }
+
+        public ObjectId getId() {
+            return ObjectId.fromRaw(array, hashOffset);
+        }
+
+        public TreeEntry getEntry() {
+            return new TreeEntry(getMode(), getName(), getId());
         }
     }
-} 
\ No newline at end of file
+}
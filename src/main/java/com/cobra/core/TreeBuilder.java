@@ -0,0 +1,86 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.util.List;
+
+public class TreeBuilder {
+    public static final String DIRECTORY_MODE = "40000";
+
+    private final Repository repo;
+    private final List<IndexEntry> entries;
+    private final CacheTree cacheTree;
+    private int treesWritten;
+
+    public TreeBuilder(Repository repo, Index index) {
+        this.repo = repo;
+        this.entries = index.getEntries();
+        this.cacheTree = index.getCacheTree();
+    }
+
+    public String build() throws IOException {
+        return buildId().toHex();
+    }
+
+    public ObjectId buildId() throws IOException {
+        CacheTree.Node root = cacheTree.get("");
+        if (root != null && root.getEntryCount() == entries.size()) {
+            return root.getId();
+        }
+        return buildDirectory("", 0, entries.size());
+    }
+
+    public int getTreesWritten() {
+        return treesWritten;
+    }
+
+    private ObjectId buildDirectory(String dir, int from, int to) throws IOException {
+        // Index entries are sorted by path, so each subdirectory is a contiguous range
+        String prefix = dir.isEmpty() ? "" : dir + "/";
+        Tree tree = new Tree();
+
+        int i = from;
+        while (i < to) {
+            IndexEntry entry = entries.get(i);
+            String rest = entry.getPath().substring(prefix.length());
+            int slash = rest.indexOf('/');
+            if (slash < 0) {
+                tree.addEntry(new Tree.TreeEntry(entry.getMode(), rest, entry.getId()));
+                i++;
+                continue;
+            }
+
+            String name = rest.substring(0, slash);
+            String subdir = prefix + name;
+            String subPrefix = subdir + "/";
+
+            // Unchanged subtrees are reused from the cache without looking at their entries
+            CacheTree.Node node = cacheTree.get(subdir);
+            int end = node != null ? i + node.getEntryCount() : -1;
+            ObjectId hash;
+            if (node != null && isRangeEnd(subPrefix, end, to)) {
+                hash = node.getId();
+            } else {
+                end = i;
+                while (end < to && entries.get(end).getPath().startsWith(subPrefix)) {
+                    end++;
+                }
+                hash = buildDirectory(subdir, i, end);
+            }
+
+            tree.addEntry(new Tree.TreeEntry(DIRECTORY_MODE, name, hash));
+            i = end;
+        }
+
+        ObjectId hash = repo.insertTree(tree);
+        treesWritten++;
+        cacheTree.put(dir, hash, to - from);
+        return hash;
+    }
+
+    private boolean isRangeEnd(String prefix, int end, int to) {
+        // Cheap sanity check that a cached entry count still lines up with the index
+        return end <= to
+            && entries.get(end - 1).getPath().startsWith(prefix)
+            && (end == to || !entries.get(end).getPath().startsWith(prefix));
+    }
+}
@@ -0,0 +1,160 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TreeDiff {
+    // Compares two trees by walking their entries side by side in name order. Subtrees with
+    // the same id are skipped without being read, so the cost follows the size of the change
+    // rather than the size of the trees. Changes reach the listener in path order.
+
+    public enum ChangeType {
+        ADDED('A'),
+        DELETED('D'),
+        MODIFIED('M'),
+        // Same content, different mode; shown as 'M' like any other modification
+        MODE_CHANGED('M');
+
+        private final char code;
+
+        ChangeType(char code) {
+            this.code = code;
+        }
+
+        public char getCode() {
+            return code;
+        }
+    }
+
+    public interface Listener {
+        // Return false to stop the walk; diff() then returns false as well
+        boolean onChange(Change change) throws IOException;
+    }
+
+    private final Repository repo;
+
+    public TreeDiff(Repository repo) {
+        this.repo = repo;
+    }
+
+    public List<Change> diff(ObjectId oldTree, ObjectId newTree) throws IOException {
+        List<Change> changes = new ArrayList<>();
+        diff(oldTree, newTree, change -> changes.add(change));
+        return changes;
+    }
+
+    public boolean diff(ObjectId oldTree, ObjectId newTree, Listener listener) throws IOException {
+        // Either tree may be null, which stands for the empty tree
+        return diff(oldTree, newTree, "", listener);
+    }
+
+    private boolean diff(ObjectId oldTree, ObjectId newTree, String prefix, Listener listener) throws IOException {
+        if (oldTree != null && oldTree.equals(newTree)) {
+            return true;
+        }
+        Tree.TreeParser before = oldTree != null ? new Tree.TreeParser(repo.readObject(oldTree)) : null;
+        Tree.TreeParser after = newTree != null ? new Tree.TreeParser(repo.readObject(newTree)) : null;
+        boolean hasBefore = before != null && before.next();
+        boolean hasAfter = after != null && after.next();
+        while (hasBefore || hasAfter) {
+            // A file and a directory of the same name sort apart, so a type change is a delete and an add
+            int cmp = !hasBefore ? 1 : !hasAfter ? -1 : before.compareName(after);
+            boolean more;
+            if (cmp < 0) {
+                more = removed(before, prefix, listener);
+                hasBefore = before.next();
+            } else if (cmp > 0) {
+                more = added(after, prefix, listener);
+                hasAfter = after.next();
+            } else {
+                more = compare(before, after, prefix, listener);
+                hasBefore = before.next();
+                hasAfter = after.next();
+            }
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean compare(Tree.TreeParser before, Tree.TreeParser after, String prefix, Listener listener)
+            throws IOException {
+        boolean sameId = before.hashEquals(after);
+        if (sameId && before.getRawMode() == after.getRawMode()) {
+            return true;
+        }
+        String path = prefix + before.getName();
+        if (before.isTree()) {
+            return diff(before.getId(), after.getId(), path + "/", listener);
+        }
+        ChangeType type = sameId ? ChangeType.MODE_CHANGED : ChangeType.MODIFIED;
+        return listener.onChange(new Change(type, path,
+            before.getRawMode(), before.getId(), after.getRawMode(), after.getId()));
+    }
+
+    private boolean added(Tree.TreeParser entry, String prefix, Listener listener) throws IOException {
+        String path = prefix + entry.getName();
+        if (entry.isTree()) {
+            return diff(null, entry.getId(), path + "/", listener);
+        }
+        return listener.onChange(new Change(ChangeType.ADDED, path, 0, null, entry.getRawMode(), entry.getId()));
+    }
+
+    private boolean removed(Tree.TreeParser entry, String prefix, Listener listener) throws IOException {
+        String path = prefix + entry.getName();
+        if (entry.isTree()) {
+            return diff(entry.getId(), null, path + "/", listener);
+        }
+        return listener.onChange(new Change(ChangeType.DELETED, path, entry.getRawMode(), entry.getId(), 0, null));
+    }
+
+    public static class Change {
+        private final ChangeType type;
+        private final String path;
+        // Modes are 0 and ids null on the side where the file does not exist
+        private final int oldMode;
+        private final ObjectId oldId;
+        private final int newMode;
+        private final ObjectId newId;
+
+        public Change(ChangeType type, String path, int oldMode, ObjectId oldId, int newMode, ObjectId newId) {
+            this.type = type;
+            this.path = path;
+            this.oldMode = oldMode;
+            this.oldId = oldId;
+            this.newMode = newMode;
+            this.newId = newId;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getOldMode() {
+            return oldMode;
+        }
+
+        public ObjectId getOldId() {
+            return oldId;
+        }
+
+        public int getNewMode() {
+            return newMode;
+        }
+
+        public ObjectId getNewId() {
+            return newId;
+        }
+
+        @Override
+        public String toString() {
+            return type.getCode() + "\t" + path;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cobra.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class UnifiedDiffFormatter {
+    // Writes git-style unified diffs straight to a stream. Line bytes are copied from the
+    // compared texts, so a large diff never exists as one String. The caller owns the stream.
+    private static final int ABBREV_LENGTH = 7;
+    private static final String NULL_ABBREV = "0000000";
+
+    private final Repository repo;
+    private final OutputStream out;
+    private final LineDiff lineDiff;
+    private int context = 3;
+
+    public UnifiedDiffFormatter(Repository repo, OutputStream out, LineDiff.Algorithm algorithm) {
+        this.repo = repo;
+        this.out = out;
+        this.lineDiff = new LineDiff(algorithm);
+    }
+
+    public void setContext(int lines) {
+        this.context = lines;
+    }
+
+    public void format(TreeDiff.Change change) throws IOException {
+        // Both sides come from the object store
+        format(change, read(change.getOldId()), read(change.getNewId()));
+    }
+
+    public void format(TreeDiff.Change change, LineDiff.Text newText) throws IOException {
+        // The old side comes from the object store, the new one from elsewhere, such as the working tree
+        format(change, read(change.getOldId()), newText);
+    }
+
+    public void format(TreeDiff.Change change, LineDiff.Text oldText, LineDiff.Text newText) throws IOException {
+        // oldText and newText hold the content of the change's two sides, empty where a side is missing
+        boolean sameContent = change.getOldId() != null && change.getOldId().equals(change.getNewId());
+        if (sameContent && change.getOldMode() == change.getNewMode()) {
+            return;
+        }
+        String path = change.getPath();
+        write("diff --git a/" + path + " b/" + path + "\n");
+        switch (change.getType()) {
+            case ADDED:
+                write("new file mode " + mode(change.getNewMode()) + "\n");
+                break;
+            case DELETED:
+                write("deleted file mode " + mode(change.getOldMode()) + "\n");
+                break;
+            default:
+                if (change.getOldMode() != change.getNewMode()) {
+                    write("old mode " + mode(change.getOldMode()) + "\n");
+                    write("new mode " + mode(change.getNewMode()) + "\n");
+                }
+                break;
+        }
+        if (sameContent) {
+            return;
+        }
+        String index = "index " + abbreviate(change.getOldId()) + ".." + abbreviate(change.getNewId());
+        if (change.getType() == TreeDiff.ChangeType.MODIFIED && change.getOldMode() == change.getNewMode()) {
+            index += " " + mode(change.getNewMode());
+        }
+        write(index + "\n");
+
+        String oldName = change.getType() == TreeDiff.ChangeType.ADDED ? "/dev/null" : "a/" + path;
+        String newName = change.getType() == TreeDiff.ChangeType.DELETED ? "/dev/null" : "b/" + path;
+        if (oldText.isBinary() || newText.isBinary()) {
+            write("Binary files " + oldName + " and " + newName + " differ\n");
+            return;
+        }
+        write("--- " + oldName + "\n");
+        write("+++ " + newName + "\n");
+        writeHunks(lineDiff.diff(oldText, newText), oldText, newText);
+    }
+
+    private void writeHunks(List<LineDiff.Edit> edits, LineDiff.Text a, LineDiff.Text b) throws IOException {
+        int i = 0;
+        while (i < edits.size()) {
+            // Edits closer than twice the context share a hunk
+            int last = i;
+            while (last + 1 < edits.size()
+                    && edits.get(last + 1).getBeginA() - edits.get(last).getEndA() <= 2 * context) {
+                last++;
+            }
+            LineDiff.Edit first = edits.get(i);
+            int aStart = Math.max(0, first.getBeginA() - context);
+            int bStart = Math.max(0, first.getBeginB() - context);
+            int aEnd = Math.min(a.size(), edits.get(last).getEndA() + context);
+            int bEnd = Math.min(b.size(), edits.get(last).getEndB() + context);
+            write("@@ -" + range(aStart, aEnd - aStart) + " +" + range(bStart, bEnd - bStart) + " @@\n");
+
+            int aLine = aStart;
+            for (int e = i; e <= last; e++) {
+                LineDiff.Edit edit = edits.get(e);
+                for (; aLine < edit.getBeginA(); aLine++) {
+                    writeLine(' ', a, aLine);
+                }
+                for (int line = edit.getBeginA(); line < edit.getEndA(); line++) {
+                    writeLine('-', a, line);
+                }
+                for (int line = edit.getBeginB(); line < edit.getEndB(); line++) {
+                    writeLine('+', b, line);
+                }
+                aLine = edit.getEndA();
+            }
+            for (; aLine < aEnd; aLine++) {
+                writeLine(' ', a, aLine);
+            }
+            i = last + 1;
+        }
+    }
+
+    private void writeLine(char prefix, LineDiff.Text text, int line) throws IOException {
+        out.write(prefix);
+        text.writeLine(out, line);
+        if (!text.hasNewline(line)) {
+            write("\n\\ No newline at end of file\n");
+        }
+    }
+
+    private LineDiff.Text read(ObjectId id) throws IOException {
+        if (id == null) {
+            return new LineDiff.Text(new byte[0]);
+        }
+        GitObject blob = repo.readObject(id);
+        return new LineDiff.Text(blob.rawData(), blob.rawOffset(), blob.getSize());
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String range(int start, int count) {
+        // Line numbers are 1-based; an empty range names the line before it
+        if (count == 0) {
+            return start + ",0";
+        }
+        return count == 1 ? String.valueOf(start + 1) : (start + 1) + "," + count;
+    }
+
+    private static String mode(int mode) {
+        return String.format("%06o", mode);
+    }
+
+    private static String abbreviate(ObjectId id) {
+        return id == null ? NULL_ABBREV : id.toHex().substring(0, ABBREV_LENGTH);
+    }
+}
@@ -0,0 +1,152 @@
+package com.cobra.core;
+
+import com.cobra.utils.FileStat;
+import com.cobra.utils.WorkingTreeWalker;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class UntrackedCache implements WorkingTreeWalker.DirectoryCache {
+    // Remembers, for every directory a full status read, its stat data, the ignore rules in
+    // effect and the untracked files and subdirectories it held. Keys are directory paths, "" is the root.
+    // Directories modified this recently may change again without their mtime moving, so they are not kept
+    private static final long RACY_NANOS = 2_000_000_000L;
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Set<String> visited = new HashSet<>();
+    private boolean dirty;
+
+    @Override
+    public synchronized WorkingTreeWalker.Listing get(String dir, FileStat stat, long rulesStamp) {
+        visited.add(dir);
+        Node node = nodes.get(dir);
+        if (node == null || !node.matches(stat, rulesStamp)) {
+            return null;
+        }
+        return node.listing;
+    }
+
+    @Override
+    public synchronized void put(String dir, FileStat stat, long rulesStamp, WorkingTreeWalker.Listing listing) {
+        visited.add(dir);
+        long now = System.currentTimeMillis() * 1_000_000L;
+        if (stat.getMtime() >= now - RACY_NANOS || stat.getCtime() >= now - RACY_NANOS) {
+            dirty |= nodes.remove(dir) != null;
+            return;
+        }
+        nodes.put(dir, new Node(stat.getMtime(), stat.getCtime(), stat.getInode(), rulesStamp, listing));
+        dirty = true;
+    }
+
+    public synchronized void invalidate(String path) {
+        // Staging or unstaging a file changes what counts as untracked in its directory
+        int slash = path.lastIndexOf('/');
+        dirty |= nodes.remove(slash < 0 ? "" : path.substring(0, slash)) != null;
+    }
+
+    public synchronized void prune() {
+        // Directories the last walk did not reach are gone or ignored now
+        dirty |= nodes.keySet().retainAll(visited);
+        visited.clear();
+    }
+
+    public synchronized void clear() {
+        dirty |= !nodes.isEmpty();
+        nodes.clear();
+        visited.clear();
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public synchronized boolean isDirty() {
+        // True when the index has to be written to keep what this run learned
+        return dirty;
+    }
+
+    synchronized void markSaved() {
+        dirty = false;
+    }
+
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(nodes.size());
+        for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+            Node node = entry.getValue();
+            writeString(out, entry.getKey());
+            out.writeLong(node.mtime);
+            out.writeLong(node.ctime);
+            out.writeLong(node.inode);
+            out.writeLong(node.rulesStamp);
+            writeNames(out, node.listing.getFiles());
+            writeNames(out, node.listing.getDirs());
+        }
+    }
+
+    public static UntrackedCache read(ByteBuffer data) {
+        UntrackedCache cache = new UntrackedCache();
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            String dir = readString(data);
+            long mtime = data.getLong();
+            long ctime = data.getLong();
+            long inode = data.getLong();
+            long rulesStamp = data.getLong();
+            List<String> files = readNames(data);
+            List<String> dirs = readNames(data);
+            cache.nodes.put(dir, new Node(mtime, ctime, inode, rulesStamp, new WorkingTreeWalker.Listing(files, dirs)));
+        }
+        return cache;
+    }
+
+    private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            writeString(out, name);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static List<String> readNames(ByteBuffer data) {
+        int count = data.getInt();
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(readString(data));
+        }
+        return names;
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getShort() & 0xffff];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Node {
+        private final long mtime;
+        private final long ctime;
+        private final long inode;
+        private final long rulesStamp;
+        private final WorkingTreeWalker.Listing listing;
+
+        Node(long mtime, long ctime, long inode, long rulesStamp, WorkingTreeWalker.Listing listing) {
+            this.mtime = mtime;
+            this.ctime = ctime;
+            this.inode = inode;
+            this.rulesStamp = rulesStamp;
+            this.listing = listing;
+        }
+
+        boolean matches(FileStat stat, long stamp) {
+            return stat.getMtime() == mtime && stat.getCtime() == ctime
+                && stat.getInode() == inode && stamp == rulesStamp;
+        }
+    }
+}
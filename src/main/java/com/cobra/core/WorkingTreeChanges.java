@@ -0,0 +1,299 @@
+package com.cobra.core;
+
+import com.cobra.utils.FileStat;
+import com.cobra.utils.IgnoreRules;
+import com.cobra.utils.WorkingTreeWalker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+public class WorkingTreeChanges {
+    // Differences between the index and the working tree. With a file monitor only the paths
+    // it reported, plus those that were dirty last time, are examined instead of the whole tree.
+    // check() may be called from many threads at once; begin, findUntracked and finish may not.
+    private static final String STATE_FILE = "fsmonitor";
+
+    private final Repository repo;
+    private final Path root;
+    private final Index index;
+    private final IndexTransaction refresh;
+    private final WorkingTreeWalker walker;
+    private final Set<String> examined = ConcurrentHashMap.newKeySet();
+    private final List<String> modified = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> untracked = new ArrayList<>();
+    private boolean fullScan;
+    // Set when the monitor narrowed the scan: the reported paths, those of them that are not
+    // tracked files (directories, new or deleted paths), and every directory above one of them
+    private Set<String> candidates;
+    private Set<String> candidateDirs;
+    private Set<String> candidateParents;
+    private FileMonitor.Changes reported;
+    private long tracked;
+
+    private WorkingTreeChanges(Repository repo) {
+        this.repo = repo;
+        this.root = repo.getRootPath();
+        this.index = repo.getIndex();
+        this.refresh = repo.beginIndexTransaction();
+        this.walker = new WorkingTreeWalker(root);
+    }
+
+    public static WorkingTreeChanges scan(Repository repo) throws IOException {
+        WorkingTreeChanges changes = begin(repo);
+        try {
+            repo.getIndex().getEntries().parallelStream().forEach(entry -> {
+                try {
+                    changes.check(entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        changes.findUntracked();
+        changes.finish();
+        return changes;
+    }
+
+    public static WorkingTreeChanges begin(Repository repo) throws IOException {
+        WorkingTreeChanges changes = new WorkingTreeChanges(repo);
+        FileMonitor monitor = repo.getFileMonitor();
+        if (monitor == null) {
+            changes.fullScan = true;
+            return changes;
+        }
+
+        // Staging or unstaging files changes the answer without touching them, so it forces a full scan
+        MonitorState state = MonitorState.load(repo);
+        changes.reported = monitor.poll(state.token);
+        changes.tracked = trackedDigest(repo.getIndex());
+        if (changes.reported.isComplete() && state.tracked == changes.tracked
+                && !changesIgnoreRules(changes.reported.getPaths())) {
+            Set<String> candidates = new HashSet<>(changes.reported.getPaths());
+            candidates.addAll(state.dirty);
+            changes.narrow(candidates);
+        } else {
+            changes.fullScan = true;
+        }
+        return changes;
+    }
+
+    public List<String> getModified() {
+        return modified;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public List<String> getUntracked() {
+        return untracked;
+    }
+
+    public boolean isFullScan() {
+        return fullScan;
+    }
+
+    public int getExaminedCount() {
+        return examined.size();
+    }
+
+    public boolean mayHaveChanges(String dir) {
+        // False when no tracked file below dir needs to be examined; "" is the root
+        return fullScan || candidateParents.contains(dir) || candidateDirs.contains(dir)
+            || isUnder(dir + "/", candidateDirs);
+    }
+
+    public char check(IndexEntry entry) throws IOException {
+        // Returns StatusEngine.MODIFIED, DELETED or UNMODIFIED for a tracked file
+        String path = entry.getPath();
+        if (!fullScan && !candidates.contains(path) && !isUnder(path, candidateDirs)) {
+            return StatusEngine.UNMODIFIED;
+        }
+        if (!examined.add(path)) {
+            return modified.contains(path) ? StatusEngine.MODIFIED
+                : deleted.contains(path) ? StatusEngine.DELETED : StatusEngine.UNMODIFIED;
+        }
+        Path file = root.resolve(path);
+        if (!Files.isRegularFile(file)) {
+            deleted.add(path);
+            return StatusEngine.DELETED;
+        }
+
+        // Only entries whose stat data changed are hashed
+        FileStat stat = FileStat.of(file);
+        if (entry.matchesStat(stat) && !index.isRacilyClean(entry)) {
+            return StatusEngine.UNMODIFIED;
+        }
+        if (repo.computeBlobId(file).equals(entry.getId())) {
+            // Content is unchanged, remember the new stat data so we skip it next time
+            entry.setStat(stat);
+            refresh.stage(entry);
+            return StatusEngine.UNMODIFIED;
+        }
+        modified.add(path);
+        return StatusEngine.MODIFIED;
+    }
+
+    public List<String> findUntracked() throws IOException {
+        if (fullScan) {
+            // Unchanged directories are answered from the untracked cache without being listed
+            UntrackedCache cache = index.getUntrackedCache();
+            if (!repo.getConfig().getBoolean(Config.UNTRACKED_CACHE, true)) {
+                cache.clear();
+                cache = null;
+            }
+            for (Path file : walker.walk(path -> !index.hasEntry(path), cache)) {
+                untracked.add(relativize(file));
+            }
+            if (cache != null) {
+                cache.prune();
+            }
+        } else {
+            for (String path : candidateDirs) {
+                Path file = root.resolve(path);
+                if (Files.isDirectory(file)) {
+                    for (Path child : walker.walk(file)) {
+                        addUntracked(relativize(child));
+                    }
+                } else if (Files.isRegularFile(file)) {
+                    addUntracked(path);
+                }
+            }
+        }
+        untracked.sort(Index.PATH_ORDER);
+        return untracked;
+    }
+
+    public void finish() throws IOException {
+        boolean saves = refresh.size() > 0;
+        refresh.commit();
+        if (!saves && fullScan && index.getUntrackedCache().isDirty()) {
+            repo.saveIndex();
+        }
+        modified.sort(Index.PATH_ORDER);
+        deleted.sort(Index.PATH_ORDER);
+
+        if (reported != null) {
+            MonitorState next = new MonitorState(reported.getToken(), tracked);
+            next.dirty.addAll(modified);
+            next.dirty.addAll(deleted);
+            next.dirty.addAll(untracked);
+            next.save(repo);
+        }
+    }
+
+    private void narrow(Set<String> paths) {
+        // Candidates may be files or directories, existing or already deleted
+        candidates = paths;
+        candidateDirs = new HashSet<>();
+        candidateParents = new HashSet<>();
+        for (String path : paths) {
+            if (!index.hasEntry(path)) {
+                candidateDirs.add(path);
+            }
+            for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+                candidateParents.add(path.substring(0, slash));
+            }
+        }
+        candidateParents.add("");
+    }
+
+    private void addUntracked(String path) throws IOException {
+        if (!index.hasEntry(path) && examined.add(path) && !walker.isIgnored(path, false)) {
+            untracked.add(path);
+        }
+    }
+
+    private String relativize(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static boolean changesIgnoreRules(Collection<String> paths) {
+        // Edited ignore rules can reveal or hide files nobody touched
+        for (String path : paths) {
+            if (path.equals(IgnoreRules.FILE_NAME) || path.endsWith("/" + IgnoreRules.FILE_NAME)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUnder(String path, Set<String> dirs) {
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (dirs.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long trackedDigest(Index index) {
+        // Order-sensitive hash of the tracked paths; the index keeps them sorted
+        long digest = index.size();
+        for (IndexEntry entry : index.getEntries()) {
+            digest = digest * 31 + entry.getPath().hashCode();
+        }
+        return digest;
+    }
+
+    private static class MonitorState {
+        // The last token, the tracked-path digest it was taken with, and the paths that were dirty
+        private final String token;
+        private final long tracked;
+        private final List<String> dirty = new ArrayList<>();
+
+        MonitorState(String token, long tracked) {
+            this.token = token;
+            this.tracked = tracked;
+        }
+
+        static MonitorState load(Repository repo) throws IOException {
+            Path file = repo.getJobraDir().resolve(STATE_FILE);
+            if (!Files.exists(file)) {
+                return new MonitorState(null, 0);
+            }
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                return new MonitorState(null, 0);
+            }
+            MonitorState state;
+            try {
+                state = new MonitorState(lines.get(0), Long.parseLong(lines.get(1)));
+            } catch (NumberFormatException e) {
+                return new MonitorState(null, 0);
+            }
+            state.dirty.addAll(lines.subList(2, lines.size()));
+            return state;
+        }
+
+        void save(Repository repo) throws IOException {
+            Path file = repo.getJobraDir().resolve(STATE_FILE);
+            Path temp = Files.createTempFile(repo.getJobraDir(), STATE_FILE, ".tmp");
+            try {
+                List<String> lines = new ArrayList<>(dirty.size() + 2);
+                lines.add(token);
+                lines.add(Long.toString(tracked));
+                lines.addAll(dirty.stream().distinct().collect(Collectors.toList()));
+                Files.write(temp, lines, StandardCharsets.UTF_8);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.cobra.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class Blake3 implements ObjectHasher {
+    // Pure-Java BLAKE3 (unkeyed, 32-byte output). Input is split into 1 KiB chunks that
+    // form a binary tree; large aligned subtrees are hashed on the common fork-join pool,
+    // smaller inputs stay on the calling thread.
+    private static final int BLOCK_LEN = 64;
+    private static final int CHUNK_LEN = 1024;
+    private static final int CHUNK_START = 1;
+    private static final int CHUNK_END = 2;
+    private static final int PARENT = 4;
+    private static final int ROOT = 8;
+    // Subtrees below this size are not worth a fork-join task
+    private static final int PARALLEL_THRESHOLD = 64 * CHUNK_LEN;
+    private static final int MAX_DEPTH = 54;
+
+    private static final int[] IV = {
+        0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A,
+        0x510E527F, 0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+    };
+    private static final int[] MSG_PERMUTATION = {2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8};
+    private static final int[][] SCHEDULE = new int[7][16];
+
+    static {
+        for (int i = 0; i < 16; i++) {
+            SCHEDULE[0][i] = i;
+        }
+        for (int r = 1; r < 7; r++) {
+            for (int i = 0; i < 16; i++) {
+                SCHEDULE[r][i] = SCHEDULE[r - 1][MSG_PERMUTATION[i]];
+            }
+        }
+    }
+
+    // Current chunk
+    private final int[] chunkCv = new int[8];
+    private final byte[] block = new byte[BLOCK_LEN];
+    private final int[] blockWords = new int[16];
+    private int blockLen;
+    private int blocksCompressed;
+    private long chunkCounter;
+
+    // Chaining values of completed subtrees, merged lazily so the root is never merged early
+    private final int[][] cvStack = new int[MAX_DEPTH][];
+    private int cvStackLength;
+
+    public Blake3() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        System.arraycopy(IV, 0, chunkCv, 0, 8);
+        blockLen = 0;
+        blocksCompressed = 0;
+        chunkCounter = 0;
+        cvStackLength = 0;
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length) {
+        update(ByteBuffer.wrap(input, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer input) {
+        ByteBuffer buffer = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        input.position(input.limit());
+        int position = 0;
+        int end = buffer.remaining();
+
+        // Top up a partially filled chunk first; it is only finished once more input follows
+        if (chunkLength() > 0) {
+            int take = Math.min(CHUNK_LEN - chunkLength(), end);
+            chunkUpdate(buffer, 0, take);
+            position = take;
+            if (position == end) {
+                return;
+            }
+            pushCv(chunkOutputCv(), chunkCounter);
+            chunkCounter++;
+            resetChunk();
+        }
+
+        // Hash the largest subtrees that are aligned with the chunks seen so far
+        while (end - position > CHUNK_LEN) {
+            long subtreeLen = Long.highestOneBit(end - position);
+            long countSoFar = chunkCounter * CHUNK_LEN;
+            while (((subtreeLen - 1) & countSoFar) != 0) {
+                subtreeLen >>= 1;
+            }
+            long subtreeChunks = subtreeLen / CHUNK_LEN;
+            if (subtreeLen == CHUNK_LEN) {
+                pushCv(chunkCv(buffer, position, chunkCounter), chunkCounter);
+            } else {
+                // Push both halves rather than their parent, the subtree may turn out to be the root
+                int half = (int) (subtreeLen / 2);
+                long rightCounter = chunkCounter + subtreeChunks / 2;
+                int[][] halves = subtreeHalves(buffer, position, half, chunkCounter, rightCounter);
+                pushCv(halves[0], chunkCounter);
+                pushCv(halves[1], rightCounter);
+            }
+            chunkCounter += subtreeChunks;
+            position += (int) subtreeLen;
+        }
+
+        if (position < end) {
+            mergeCvStack(chunkCounter);
+            chunkUpdate(buffer, position, end - position);
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        int[] words;
+        if (cvStackLength == 0) {
+            words = chunkOutput(ROOT);
+        } else {
+            int remaining = cvStackLength;
+            int[] input;
+            int flags;
+            long counter;
+            int length;
+            int[] cv;
+            if (chunkLength() > 0) {
+                cv = chunkCv.clone();
+                input = loadBlock();
+                counter = chunkCounter;
+                length = blockLen;
+                flags = chunkFlags() | CHUNK_END;
+            } else {
+                cv = IV;
+                input = parentBlock(cvStack[remaining - 2], cvStack[remaining - 1]);
+                counter = 0;
+                length = BLOCK_LEN;
+                flags = PARENT;
+                remaining -= 2;
+            }
+            while (remaining > 0) {
+                int[] childCv = new int[8];
+                compress(cv, input, counter, length, flags, childCv);
+                cv = IV;
+                input = parentBlock(cvStack[remaining - 1], childCv);
+                counter = 0;
+                length = BLOCK_LEN;
+                flags = PARENT;
+                remaining--;
+            }
+            words = new int[8];
+            compress(cv, input, 0, length, flags | ROOT, words);
+        }
+
+        byte[] hash = new byte[32];
+        for (int i = 0; i < 8; i++) {
+            hash[i * 4] = (byte) words[i];
+            hash[i * 4 + 1] = (byte) (words[i] >>> 8);
+            hash[i * 4 + 2] = (byte) (words[i] >>> 16);
+            hash[i * 4 + 3] = (byte) (words[i] >>> 24);
+        }
+        reset();
+        return hash;
+    }
+
+    private int chunkLength() {
+        return blocksCompressed * BLOCK_LEN + blockLen;
+    }
+
+    private int chunkFlags() {
+        return blocksCompressed == 0 ? CHUNK_START : 0;
+    }
+
+    private void resetChunk() {
+        System.arraycopy(IV, 0, chunkCv, 0, 8);
+        blockLen = 0;
+        blocksCompressed = 0;
+    }
+
+    private void chunkUpdate(ByteBuffer buffer, int position, int length) {
+        while (length > 0) {
+            if (blockLen == BLOCK_LEN) {
+                compress(chunkCv, loadBlock(), chunkCounter, BLOCK_LEN, chunkFlags(), chunkCv);
+                blocksCompressed++;
+                blockLen = 0;
+            }
+            if (blockLen == 0 && length > BLOCK_LEN) {
+                // Whole blocks with more input behind them are compressed straight from the input
+                loadWords(buffer, position, blockWords);
+                compress(chunkCv, blockWords, chunkCounter, BLOCK_LEN, chunkFlags(), chunkCv);
+                blocksCompressed++;
+                position += BLOCK_LEN;
+                length -= BLOCK_LEN;
+                continue;
+            }
+            int take = Math.min(BLOCK_LEN - blockLen, length);
+            for (int i = 0; i < take; i++) {
+                block[blockLen + i] = buffer.get(position + i);
+            }
+            blockLen += take;
+            position += take;
+            length -= take;
+        }
+    }
+
+    private int[] loadBlock() {
+        for (int i = 0; i < 16; i++) {
+            int word = 0;
+            for (int b = 3; b >= 0; b--) {
+                int index = i * 4 + b;
+                word = (word << 8) | (index < blockLen ? block[index] & 0xff : 0);
+            }
+            blockWords[i] = word;
+        }
+        return blockWords;
+    }
+
+    private int[] chunkOutput(int extraFlags) {
+        int[] out = new int[8];
+        compress(chunkCv, loadBlock(), extraFlags == ROOT ? 0 : chunkCounter, blockLen,
+            chunkFlags() | CHUNK_END | extraFlags, out);
+        return out;
+    }
+
+    private int[] chunkOutputCv() {
+        return chunkOutput(0);
+    }
+
+    private void pushCv(int[] cv, long totalChunks) {
+        mergeCvStack(totalChunks);
+        cvStack[cvStackLength++] = cv;
+    }
+
+    private void mergeCvStack(long totalChunks) {
+        int postMergeLength = Long.bitCount(totalChunks);
+        while (cvStackLength > postMergeLength) {
+            int[] right = cvStack[--cvStackLength];
+            int[] left = cvStack[--cvStackLength];
+            cvStack[cvStackLength++] = parentCv(left, right);
+        }
+    }
+
+    private static int[][] subtreeHalves(ByteBuffer buffer, int position, int half, long leftCounter, long rightCounter) {
+        if (half >= PARALLEL_THRESHOLD) {
+            SubtreeTask left = new SubtreeTask(buffer, position, half, leftCounter);
+            SubtreeTask right = new SubtreeTask(buffer, position + half, half, rightCounter);
+            if (ForkJoinTask.inForkJoinPool()) {
+                ForkJoinTask.invokeAll(left, right);
+                return new int[][] {left.join(), right.join()};
+            }
+            ForkJoinPool.commonPool().execute(left);
+            int[] rightCv = right.invoke();
+            return new int[][] {left.join(), rightCv};
+        }
+        return new int[][] {
+            subtreeCv(buffer, position, half, leftCounter),
+            subtreeCv(buffer, position + half, half, rightCounter)
+        };
+    }
+
+    private static int[] subtreeCv(ByteBuffer buffer, int position, int length, long counter) {
+        // length is a power-of-two number of whole chunks
+        if (length == CHUNK_LEN) {
+            return chunkCv(buffer, position, counter);
+        }
+        int half = length / 2;
+        int[][] halves = subtreeHalves(buffer, position, half, counter, counter + half / CHUNK_LEN);
+        return parentCv(halves[0], halves[1]);
+    }
+
+    private static int[] chunkCv(ByteBuffer buffer, int position, long counter) {
+        int[] cv = IV.clone();
+        int[] words = new int[16];
+        for (int i = 0; i < CHUNK_LEN / BLOCK_LEN; i++) {
+            int flags = (i == 0 ? CHUNK_START : 0) | (i == CHUNK_LEN / BLOCK_LEN - 1 ? CHUNK_END : 0);
+            loadWords(buffer, position + i * BLOCK_LEN, words);
+            compress(cv, words, counter, BLOCK_LEN, flags, cv);
+        }
+        return cv;
+    }
+
+    private static int[] parentCv(int[] left, int[] right) {
+        int[] cv = new int[8];
+        compress(IV, parentBlock(left, right), 0, BLOCK_LEN, PARENT, cv);
+        return cv;
+    }
+
+    private static int[] parentBlock(int[] left, int[] right) {
+        int[] words = new int[16];
+        System.arraycopy(left, 0, words, 0, 8);
+        System.arraycopy(right, 0, words, 8, 8);
+        return words;
+    }
+
+    private static void loadWords(ByteBuffer buffer, int position, int[] words) {
+        for (int i = 0; i < 16; i++) {
+            words[i] = buffer.getInt(position + i * 4);
+        }
+    }
+
+    private static void compress(int[] cv, int[] m, long counter, int blockLen, int flags, int[] out) {
+        int v0 = cv[0], v1 = cv[1], v2 = cv[2], v3 = cv[3];
+        int v4 = cv[4], v5 = cv[5], v6 = cv[6], v7 = cv[7];
+        int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+        int v12 = (int) counter, v13 = (int) (counter >>> 32), v14 = blockLen, v15 = flags;
+
+        for (int r = 0; r < 7; r++) {
+            int[] s = SCHEDULE[r];
+
+            // Columns
+            v0 += v4 + m[s[0]]; v12 = Integer.rotateRight(v12 ^ v0, 16); v8 += v12; v4 = Integer.rotateRight(v4 ^ v8, 12);
+            v0 += v4 + m[s[1]]; v12 = Integer.rotateRight(v12 ^ v0, 8); v8 += v12; v4 = Integer.rotateRight(v4 ^ v8, 7);
+            v1 += v5 + m[s[2]]; v13 = Integer.rotateRight(v13 ^ v1, 16); v9 += v13; v5 = Integer.rotateRight(v5 ^ v9, 12);
+            v1 += v5 + m[s[3]]; v13 = Integer.rotateRight(v13 ^ v1, 8); v9 += v13; v5 = Integer.rotateRight(v5 ^ v9, 7);
+            v2 += v6 + m[s[4]]; v14 = Integer.rotateRight(v14 ^ v2, 16); v10 += v14; v6 = Integer.rotateRight(v6 ^ v10, 12);
+            v2 += v6 + m[s[5]]; v14 = Integer.rotateRight(v14 ^ v2, 8); v10 += v14; v6 = Integer.rotateRight(v6 ^ v10, 7);
+            v3 += v7 + m[s[6]]; v15 = Integer.rotateRight(v15 ^ v3, 16); v11 += v15; v7 = Integer.rotateRight(v7 ^ v11, 12);
+            v3 += v7 + m[s[7]]; v15 = Integer.rotateRight(v15 ^ v3, 8); v11 += v15; v7 = Integer.rotateRight(v7 ^ v11, 7);
+
+            // Diagonals
+            v0 += v5 + m[s[8]]; v15 = Integer.rotateRight(v15 ^ v0, 16); v10 += v15; v5 = Integer.rotateRight(v5 ^ v10, 12);
+            v0 += v5 + m[s[9]]; v15 = Integer.rotateRight(v15 ^ v0, 8); v10 += v15; v5 = Integer.rotateRight(v5 ^ v10, 7);
+            v1 += v6 + m[s[10]]; v12 = Integer.rotateRight(v12 ^ v1, 16); v11 += v12; v6 = Integer.rotateRight(v6 ^ v11, 12);
+            v1 += v6 + m[s[11]]; v12 = Integer.rotateRight(v12 ^ v1, 8); v11 += v12; v6 = Integer.rotateRight(v6 ^ v11, 7);
+            v2 += v7 + m[s[12]]; v13 = Integer.rotateRight(v13 ^ v2, 16); v8 += v13; v7 = Integer.rotateRight(v7 ^ v8, 12);
+            v2 += v7 + m[s[13]]; v13 = Integer.rotateRight(v13 ^ v2, 8); v8 += v13; v7 = Integer.rotateRight(v7 ^ v8, 7);
+            v3 += v4 + m[s[14]]; v14 = Integer.rotateRight(v14 ^ v3, 16); v9 += v14; v4 = Integer.rotateRight(v4 ^ v9, 12);
+            v3 += v4 + m[s[15]]; v14 = Integer.rotateRight(v14 ^ v3, 8); v9 += v14; v4 = Integer.rotateRight(v4 ^ v9, 7);
+        }
+
+        out[0] = v0 ^ v8;
+        out[1] = v1 ^ v9;
+        out[2] = v2 ^ v10;
+        out[3] = v3 ^ v11;
+        out[4] = v4 ^ v12;
+        out[5] = v5 ^ v13;
+        out[6] = v6 ^ v14;
+        out[7] = v7 ^ v15;
+    }
+
+    private static class SubtreeTask extends RecursiveTask<int[]> {
+        private final ByteBuffer buffer;
+        private final int position;
+        private final int length;
+        private final long counter;
+
+        SubtreeTask(ByteBuffer buffer, int position, int length, long counter) {
+            this.buffer = buffer;
+            this.position = position;
+            this.length = length;
+            this.counter = counter;
+        }
+
+        @Override
+        protected int[] compute() {
+            return subtreeCv(buffer, position, length, counter);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cobra.utils;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class FileStat {
+    private static final boolean UNIX_VIEW =
+        FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+
+    private final long mtime;
+    private final long ctime;
+    private final long inode;
+    private final long device;
+    private final long size;
+
+    public FileStat(long mtime, long ctime, long inode, long device, long size) {
+        this.mtime = mtime;
+        this.ctime = ctime;
+        this.inode = inode;
+        this.device = device;
+        this.size = size;
+    }
+
+    public static FileStat of(Path path) throws IOException {
+        if (UNIX_VIEW) {
+            Map<String, Object> attrs = Files.readAttributes(path, "unix:lastModifiedTime,ctime,ino,dev,size");
+            return new FileStat(
+                toNanos((FileTime) attrs.get("lastModifiedTime")),
+                toNanos((FileTime) attrs.get("ctime")),
+                ((Number) attrs.get("ino")).longValue(),
+                ((Number) attrs.get("dev")).longValue(),
+                ((Number) attrs.get("size")).longValue()
+            );
+        }
+        
+        // Without the unix view only times and size are available
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStat(
+            toNanos(attrs.lastModifiedTime()),
+            toNanos(attrs.creationTime()),
+            0,
+            0,
+            attrs.size()
+        );
+    }
+
+    private static long toNanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    public long getMtime() {
+        return mtime;
+    }
+
+    public long getCtime() {
+        return ctime;
+    }
+
+    public long getInode() {
+        return inode;
+    }
+
+    public long getDevice() {
+        return device;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
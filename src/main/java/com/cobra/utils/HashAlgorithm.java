@@ -0,0 +1,90 @@
+package com.cobra.utils;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+public enum HashAlgorithm {
+    // Both produce 32-byte ids, so object ids and on-disk layouts do not depend on the choice
+    SHA256("sha256", 64 * 1024) {
+        @Override
+        public ObjectHasher newHasher() {
+            return new DigestHasher(HashUtils.newSha256());
+        }
+    },
+    BLAKE3("blake3", 4 * 1024 * 1024) {
+        @Override
+        public ObjectHasher newHasher() {
+            return new Blake3();
+        }
+    };
+
+    private final String name;
+    private final int streamBufferSize;
+    private final ThreadLocal<ObjectHasher> threadHasher = ThreadLocal.withInitial(this::newHasher);
+
+    HashAlgorithm(String name, int streamBufferSize) {
+        this.name = name;
+        this.streamBufferSize = streamBufferSize;
+    }
+
+    public abstract ObjectHasher newHasher();
+
+    public ObjectHasher threadHasher() {
+        // The calling thread's hasher, reset; it must not be held across another call that hashes
+        ObjectHasher hasher = threadHasher.get();
+        hasher.reset();
+        return hasher;
+    }
+
+    public byte[] hash(byte[] input, int offset, int length) {
+        ObjectHasher hasher = threadHasher();
+        hasher.update(input, offset, length);
+        return hasher.digest();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStreamBufferSize() {
+        // BLAKE3 only spreads work across cores when it sees large inputs at once
+        return streamBufferSize;
+    }
+
+    public static HashAlgorithm fromName(String name) {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equalsIgnoreCase(name.trim())) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash algorithm: " + name);
+    }
+
+    private static class DigestHasher implements ObjectHasher {
+        private final MessageDigest digest;
+
+        DigestHasher(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(byte[] input, int offset, int length) {
+            digest.update(input, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer input) {
+            digest.update(input);
+        }
+
+        @Override
+        public void reset() {
+            digest.reset();
+        }
+
+        @Override
+        public byte[] digest() {
+            return digest.digest();
+        }
+    }
+}
@@ -1,25 +1,107 @@
 package com.cobra.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 public class HashUtils {
-    
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    // MessageDigest.getInstance is comparatively expensive, so one-shot hashes reuse a digest per thread
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(HashUtils::newSha256);
+
     public static String sha256(String input) {
+        return sha256(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256(byte[] input) {
+        return bytesToHex(sha256Raw(input, 0, input.length));
+    }
+
+    public static byte[] sha256Raw(byte[] input, int offset, int length) {
+        MessageDigest digest = sha256Digest();
+        digest.update(input, offset, length);
+        return digest.digest();
+    }
+
+    public static byte[] sha256Raw(ByteBuffer input) {
+        MessageDigest digest = sha256Digest();
+        digest.update(input);
+        return digest.digest();
+    }
+
+    public static MessageDigest sha256Digest() {
+        // The calling thread's digest, reset; it must not be held across another call into this class
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
+    }
+
+    public static MessageDigest newSha256() {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(input.getBytes());
-            return bytesToHex(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
     }
-    
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+
+    public static String bytesToHex(byte[] bytes) {
+        return bytesToHex(bytes, 0, bytes.length);
+    }
+
+    public static String bytesToHex(byte[] bytes, int offset, int length) {
+        char[] result = new char[length * 2];
+        for (int i = 0; i < length; i++) {
+            int b = bytes[offset + i] & 0xff;
+            result[i * 2] = HEX[b >>> 4];
+            result[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(result);
+    }
+
+    public static void appendHex(StringBuilder out, long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out.append(HEX[(int) (value >>> shift) & 0x0f]);
         }
-        return result.toString();
     }
-} 
\ No newline at end of file
+
+    public static byte[] hexToBytes(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid hex string: " + hex);
+        }
+        byte[] result = new byte[hex.length() / 2];
+        hexToBytes(hex, result, 0);
+        return result;
+    }
+
+    public static void hexToBytes(String hex, byte[] out, int offset) {
+        int length = hex.length() / 2;
+        for (int i = 0; i < length; i++) {
+            int high = hexValue(hex.charAt(i * 2));
+            int low = hexValue(hex.charAt(i * 2 + 1));
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex string: " + hex);
+            }
+            out[offset + i] = (byte) ((high << 4) | low);
+        }
+    }
+
+    public static int hexValue(char c) {
+        return c < 128 ? HEX_VALUES[c] : -1;
+    }
+}
@@ -0,0 +1,288 @@
+package com.cobra.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public class IgnoreRules {
+    // Patterns from one .cobraignore, chained to those of the enclosing directories. Matching
+    // follows gitignore: the deepest file wins, and within a file the last matching pattern.
+    public static final String FILE_NAME = ".cobraignore";
+
+    // What used to be hard-coded; a .cobraignore can re-include any of it with "!"
+    private static final List<String> DEFAULTS = Arrays.asList(
+        ".*", "target", "build", "node_modules", "*.class", "*.jar");
+
+    private static final IgnoreRules DEFAULT_RULES =
+        new IgnoreRules(null, "", compile(DEFAULTS), DEFAULTS.hashCode());
+
+    private final IgnoreRules parent;
+    private final String base;
+    // Changes whenever the content of any file in the chain does
+    private final long stamp;
+    private final Rule[] rules;
+    private final boolean hasNegation;
+    // Unanchored, negation-free literals and suffixes are checked with set lookups
+    private final Set<String> names = new HashSet<>();
+    private final Set<String> dirNames = new HashSet<>();
+    private final List<String> suffixes = new ArrayList<>();
+    private final List<Rule> patterns = new ArrayList<>();
+
+    private IgnoreRules(IgnoreRules parent, String base, Rule[] rules, long stamp) {
+        this.parent = parent;
+        this.base = base;
+        this.stamp = stamp;
+        this.rules = rules;
+        boolean negation = false;
+        for (Rule rule : rules) {
+            negation |= rule.negate;
+        }
+        this.hasNegation = negation;
+        if (!negation) {
+            for (Rule rule : rules) {
+                if (rule.literal != null) {
+                    (rule.dirOnly ? dirNames : names).add(rule.literal);
+                } else if (rule.suffix != null && !rule.dirOnly) {
+                    suffixes.add(rule.suffix);
+                } else {
+                    patterns.add(rule);
+                }
+            }
+        }
+    }
+
+    public static IgnoreRules defaults() {
+        return DEFAULT_RULES;
+    }
+
+    public IgnoreRules child(Path dir, String relativeDir) throws IOException {
+        // The rules for a subdirectory: these plus its own .cobraignore, if it has one
+        Path file = dir.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return this;
+        }
+        byte[] content = Files.readAllBytes(file);
+        long hash = stamp;
+        for (byte b : content) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        List<String> lines = Arrays.asList(new String(content, StandardCharsets.UTF_8).split("\r?\n"));
+        return new IgnoreRules(this, relativeDir, compile(lines), hash * 31 + relativeDir.hashCode());
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public boolean isIgnored(String path, boolean directory) {
+        // path is relative to the repository root and uses '/' separators
+        int slash = path.lastIndexOf('/');
+        String name = slash >= 0 ? path.substring(slash + 1) : path;
+        for (IgnoreRules rules = this; rules != null; rules = rules.parent) {
+            int match = rules.match(path, name, directory);
+            if (match != 0) {
+                return match > 0;
+            }
+        }
+        return false;
+    }
+
+    private int match(String path, String name, boolean directory) {
+        // 1 ignored, -1 explicitly re-included, 0 no opinion
+        if (!base.isEmpty() && !path.startsWith(base + "/")) {
+            return 0;
+        }
+        String relative = base.isEmpty() ? path : path.substring(base.length() + 1);
+
+        if (!hasNegation) {
+            if (names.contains(name) || (directory && dirNames.contains(name))) {
+                return 1;
+            }
+            for (String suffix : suffixes) {
+                if (name.endsWith(suffix)) {
+                    return 1;
+                }
+            }
+            for (Rule rule : patterns) {
+                if (rule.matches(relative, name, directory)) {
+                    return 1;
+                }
+            }
+            return 0;
+        }
+
+        for (int i = rules.length - 1; i >= 0; i--) {
+            if (rules[i].matches(relative, name, directory)) {
+                return rules[i].negate ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    private static Rule[] compile(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.parse(line);
+            if (rule != null) {
+                rules.add(rule);
+            }
+        }
+        return rules.toArray(new Rule[0]);
+    }
+
+    private static class Rule {
+        final boolean negate;
+        final boolean dirOnly;
+        final boolean anchored;
+        // At most one of literal, suffix and regex is set
+        final String literal;
+        final String suffix;
+        final Pattern regex;
+
+        private Rule(boolean negate, boolean dirOnly, boolean anchored, String literal, String suffix, Pattern regex) {
+            this.negate = negate;
+            this.dirOnly = dirOnly;
+            this.anchored = anchored;
+            this.literal = literal;
+            this.suffix = suffix;
+            this.regex = regex;
+        }
+
+        static Rule parse(String line) {
+            String pattern = trimTrailingSpaces(line);
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negate = false;
+            if (pattern.startsWith("!")) {
+                negate = true;
+                pattern = pattern.substring(1);
+            } else if (pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+            boolean dirOnly = pattern.endsWith("/");
+            if (dirOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            // A slash anywhere but the end anchors the pattern to the .cobraignore's directory
+            boolean anchored = pattern.indexOf('/') >= 0;
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+            if (pattern.isEmpty()) {
+                return null;
+            }
+
+            if (!anchored && !hasWildcard(pattern)) {
+                return new Rule(negate, dirOnly, false, unescape(pattern), null, null);
+            }
+            if (!anchored && pattern.startsWith("*") && !hasWildcard(pattern.substring(1))) {
+                return new Rule(negate, dirOnly, false, null, unescape(pattern.substring(1)), null);
+            }
+            return new Rule(negate, dirOnly, anchored, null, null, Pattern.compile(toRegex(pattern)));
+        }
+
+        boolean matches(String relative, String name, boolean directory) {
+            if (dirOnly && !directory) {
+                return false;
+            }
+            if (literal != null) {
+                return name.equals(literal);
+            }
+            if (suffix != null) {
+                return name.endsWith(suffix);
+            }
+            return regex.matcher(anchored ? relative : name).matches();
+        }
+
+        private static boolean hasWildcard(String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' || c == '?' || c == '[' || c == '\\') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int i = 0;
+            int length = glob.length();
+            while (i < length) {
+                char c = glob.charAt(i);
+                if (c == '*' && glob.startsWith("**", i)) {
+                    boolean atStart = i == 0 || glob.charAt(i - 1) == '/';
+                    boolean atEnd = i + 2 == length || glob.charAt(i + 2) == '/';
+                    if (atStart && atEnd) {
+                        if (i + 2 == length) {
+                            // "dir/**" matches everything inside dir
+                            regex.append(".*");
+                            i += 2;
+                        } else {
+                            // "**/" matches zero or more directories
+                            regex.append("(?:.*/)?");
+                            i += 3;
+                        }
+                        continue;
+                    }
+                }
+                switch (c) {
+                    case '*':
+                        regex.append("[^/]*");
+                        break;
+                    case '?':
+                        regex.append("[^/]");
+                        break;
+                    case '[': {
+                        int close = glob.indexOf(']', i + 2);
+                        if (close < 0) {
+                            regex.append("\\[");
+                            break;
+                        }
+                        String body = glob.substring(i + 1, close);
+                        if (body.startsWith("!")) {
+                            body = "^" + body.substring(1);
+                        }
+                        regex.append('[').append(body.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                        i = close;
+                        break;
+                    }
+                    case '\\':
+                        if (i + 1 < length) {
+                            i++;
+                            regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                        }
+                        break;
+                    default:
+                        if ("().+^$|{}".indexOf(c) >= 0) {
+                            regex.append('\\');
+                        }
+                        regex.append(c);
+                        break;
+                }
+                i++;
+            }
+            return regex.toString();
+        }
+
+        private static String unescape(String pattern) {
+            return pattern.indexOf('\\') < 0 ? pattern : pattern.replaceAll("\\\\(.)", "$1");
+        }
+
+        private static String trimTrailingSpaces(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+    }
+}
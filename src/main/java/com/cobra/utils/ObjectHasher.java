@@ -0,0 +1,19 @@
+package com.cobra.utils;
+
+import java.nio.ByteBuffer;
+
+public interface ObjectHasher {
+
+    void update(byte[] input, int offset, int length);
+
+    void update(ByteBuffer input);
+
+    void reset();
+
+    // Returns the 32-byte hash and resets the hasher for the next input
+    byte[] digest();
+
+    default void update(byte[] input) {
+        update(input, 0, input.length);
+    }
+}
@@ -0,0 +1,26 @@
+package com.cobra.utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class WorkingDirectory {
+    // The daemon runs commands for many clients in one process, so the directory is per thread
+    private static final ThreadLocal<Path> CURRENT = new ThreadLocal<>();
+
+    public static Path get() {
+        Path current = CURRENT.get();
+        return current != null ? current : Paths.get(".").toAbsolutePath().normalize();
+    }
+
+    public static Path resolve(String path) {
+        return get().resolve(path).normalize();
+    }
+
+    public static void set(Path path) {
+        CURRENT.set(path.toAbsolutePath().normalize());
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
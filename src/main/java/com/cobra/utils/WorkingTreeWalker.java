@@ -0,0 +1,214 @@
+package com.cobra.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+public class WorkingTreeWalker {
+    // Lists the regular files of a working tree that are not ignored. Ignored directories are
+    // pruned before they are opened, and subdirectories are walked in parallel on the common pool.
+    private static final String COBRA_DIR = ".cobra";
+
+    private final Path root;
+    // Rules in effect inside each directory, keyed by its path relative to the root
+    private final Map<String, IgnoreRules> rulesByDir = new ConcurrentHashMap<>();
+
+    public WorkingTreeWalker(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public List<Path> walk() throws IOException {
+        return walk(root);
+    }
+
+    public List<Path> walk(Predicate<String> filter, DirectoryCache cache) throws IOException {
+        // Only files accepted by the filter are listed; directories the cache still vouches for are not read
+        return invoke(new WalkTask(root, "", IgnoreRules.defaults(), filter, cache));
+    }
+
+    public List<Path> walk(Path start) throws IOException {
+        // Files below start, which must lie inside the working tree
+        Path dir = start.toAbsolutePath().normalize();
+        String relative = relativize(dir);
+        if (!relative.isEmpty() && isIgnored(relative, true)) {
+            return Collections.emptyList();
+        }
+        IgnoreRules parentRules = relative.isEmpty() ? IgnoreRules.defaults() : rulesFor(parentOf(relative));
+        return invoke(new WalkTask(dir, relative, parentRules, path -> true, null));
+    }
+
+    public boolean isIgnored(String path, boolean directory) throws IOException {
+        // A path is ignored when it, or any directory above it, is
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            String dir = path.substring(0, slash);
+            if (isCobraDir(dir) || rulesFor(parentOf(dir)).isIgnored(dir, true)) {
+                return true;
+            }
+        }
+        return (directory && isCobraDir(path)) || rulesFor(parentOf(path)).isIgnored(path, directory);
+    }
+
+    private static List<Path> invoke(WalkTask task) throws IOException {
+        try {
+            return ForkJoinPool.commonPool().invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private IgnoreRules rulesFor(String dir) throws IOException {
+        IgnoreRules rules = rulesByDir.get(dir);
+        if (rules == null) {
+            IgnoreRules parent = dir.isEmpty() ? IgnoreRules.defaults() : rulesFor(parentOf(dir));
+            rules = parent.child(root.resolve(dir), dir);
+            rulesByDir.putIfAbsent(dir, rules);
+        }
+        return rules;
+    }
+
+    private String relativize(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private static boolean isCobraDir(String path) {
+        return path.equals(COBRA_DIR) || path.endsWith("/" + COBRA_DIR);
+    }
+
+    public interface DirectoryCache {
+        // Returns what dir held when it last had this stat data and these rules, or null to read it
+        Listing get(String dir, FileStat stat, long rulesStamp);
+
+        void put(String dir, FileStat stat, long rulesStamp, Listing listing);
+    }
+
+    public static class Listing {
+        // Names of the files the filter accepted and of the subdirectories that are not ignored
+        private final List<String> files;
+        private final List<String> dirs;
+
+        public Listing(List<String> files, List<String> dirs) {
+            this.files = files;
+            this.dirs = dirs;
+        }
+
+        public List<String> getFiles() {
+            return files;
+        }
+
+        public List<String> getDirs() {
+            return dirs;
+        }
+    }
+
+    private class WalkTask extends RecursiveTask<List<Path>> {
+        private final Path dir;
+        private final String relative;
+        private final IgnoreRules parentRules;
+        private final Predicate<String> filter;
+        private final DirectoryCache cache;
+
+        WalkTask(Path dir, String relative, IgnoreRules parentRules, Predicate<String> filter, DirectoryCache cache) {
+            this.dir = dir;
+            this.relative = relative;
+            this.parentRules = parentRules;
+            this.filter = filter;
+            this.cache = cache;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            try {
+                return walkDirectory();
+            } catch (NoSuchFileException e) {
+                // Removed since its parent was listed
+                return Collections.emptyList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<Path> walkDirectory() throws IOException {
+            IgnoreRules rules = parentRules.child(dir, relative);
+            rulesByDir.putIfAbsent(relative, rules);
+
+            Listing listing;
+            if (cache == null) {
+                listing = list(rules);
+            } else {
+                // Stat before listing, so a change made while we read shows up next time
+                FileStat stat = FileStat.of(dir);
+                listing = cache.get(relative, stat, rules.getStamp());
+                if (listing == null) {
+                    listing = list(rules);
+                    cache.put(relative, stat, rules.getStamp(), listing);
+                }
+            }
+
+            List<Path> files = new ArrayList<>(listing.files.size());
+            for (String name : listing.files) {
+                files.add(dir.resolve(name));
+            }
+            if (!listing.dirs.isEmpty()) {
+                String prefix = relative.isEmpty() ? "" : relative + "/";
+                List<WalkTask> subdirs = new ArrayList<>(listing.dirs.size());
+                for (String name : listing.dirs) {
+                    subdirs.add(new WalkTask(dir.resolve(name), prefix + name, rules, filter, cache));
+                }
+                invokeAll(subdirs);
+                for (WalkTask subdir : subdirs) {
+                    files.addAll(subdir.join());
+                }
+            }
+            return files;
+        }
+
+        private Listing list(IgnoreRules rules) throws IOException {
+            String prefix = relative.isEmpty() ? "" : relative + "/";
+            List<String> files = new ArrayList<>();
+            List<String> dirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (NoSuchFileException e) {
+                        // Deleted while we were listing
+                        continue;
+                    }
+                    String name = entry.getFileName().toString();
+                    String path = prefix + name;
+                    if (attrs.isDirectory()) {
+                        if (!name.equals(COBRA_DIR) && !rules.isIgnored(path, true)) {
+                            dirs.add(name);
+                        }
+                    } else if (attrs.isRegularFile() && !rules.isIgnored(path, false) && filter.test(path)) {
+                        files.add(name);
+                    }
+                }
+            }
+            return new Listing(files, dirs);
+        }
+    }
+}